@@ -41,5 +41,13 @@ public enum CompareType {
     /** Compare by less than. */
     LT,
     /** Compare by no equal. */
-    NE
+    NE,
+    /** Compare by inclusion in a collection or an array (an empty one matches nothing). */
+    IN,
+    /** Compare by inclusion in a range: the parameter is the lower bound, the next one the upper bound. */
+    BETWEEN,
+    /** Compare with null, ignoring the parameter value. */
+    IS_NULL,
+    /** Compare with not null, ignoring the parameter value. */
+    IS_NOT_NULL
 }
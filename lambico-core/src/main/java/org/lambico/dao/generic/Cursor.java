@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.dao.generic;
+
+import java.util.Iterator;
+
+/**
+ * A forward-only cursor on the results of a query.
+ *
+ * The results are read from the database while the cursor is iterated, so
+ * they are never loaded all together in memory. It can be iterated only once,
+ * and it holds database resources until it's closed. It's closed automatically
+ * when the last result is read, or when the current transaction completes.
+ *
+ * @param <T> The type of the results.
+ * @version $Revision$
+ */
+public interface Cursor<T> extends Iterator<T>, Iterable<T> {
+
+    /**
+     * Release the database resources held by the cursor.
+     *
+     * After closing the cursor, no more results are returned.
+     * Closing an already closed cursor has no effect.
+     */
+    void close();
+
+    /**
+     * Check if the cursor has been closed.
+     *
+     * @return true if the cursor is closed.
+     */
+    boolean isClosed();
+}
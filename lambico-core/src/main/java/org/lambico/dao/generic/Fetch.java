@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.dao.generic;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Use this annotation on finder methods for fetching some associations of the
+ * returned entities together with them, instead of loading each association
+ * with a further query when it's accessed.
+ *
+ * With the JOIN mode the associations are fetched by the finder query, and
+ * the entities are returned only once even if a collection is joined. With
+ * the SUBSELECT mode the associations of all the returned entities are fetched
+ * by a single further query for each path. The collections of the paginated
+ * and of the single-result finders are always fetched with the SUBSELECT mode,
+ * as joining them would apply the limits of the finder in memory. The finders
+ * returning a cursor (or an Iterator) can fetch only the to-one associations
+ * with the JOIN mode: the other fetches are reported as errors by the validation
+ * of the DAO, and the finder fails when called.
+ *
+ * @version $Revision$
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD })
+public @interface Fetch {
+
+    /**
+     * The paths of the associations to fetch (for example "customer" or "lines.product").
+     */
+    String[] value();
+
+    /**
+     * How the associations are fetched.
+     */
+    FetchModeType mode() default FetchModeType.JOIN;
+}
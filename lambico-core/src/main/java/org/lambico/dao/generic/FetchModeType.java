@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.dao.generic;
+
+/**
+ * Enum used with the {@link Fetch} annotation, for defining how the
+ * associations of the entities returned by a finder are fetched.
+ *
+ * @version $Revision$
+ */
+public enum FetchModeType {
+    /** Fetch the associations in the same query, with an outer join. */
+    JOIN,
+    /** Fetch the associations of all the returned entities with a second query for each path. */
+    SUBSELECT
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.dao.generic;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Use this annotation on DAO methods, or on a DAO interface for all its
+ * methods, for setting the JDBC fetch size of their queries, that is the
+ * number of rows read from the database in a single round-trip.
+ *
+ * On a DAO interface it applies also to the queries of the generic methods
+ * (findAll, searchByCriteria, count...), and on a business DAO class to the
+ * queries of all its methods. On a method it applies only to a finder.
+ *
+ * @version $Revision$
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE })
+public @interface FetchSize {
+
+    /**
+     * The number of rows fetched in a single round-trip.
+     */
+    int value();
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.dao.generic;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Use this annotation on DAO methods, or on a DAO interface for all its
+ * methods, for setting when the session is flushed before their queries.
+ *
+ * For example, read-only paths can avoid the automatic flush before every
+ * query with <code>@FlushMode(FlushModeType.COMMIT)</code>.
+ *
+ * As for {@link QueryTimeout}, the flush mode of a DAO interface or of a
+ * business DAO class is used by all the methods of the DAO, while a method
+ * annotation affects only a finder.
+ *
+ * @version $Revision$
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE })
+public @interface FlushMode {
+
+    /**
+     * The flush mode.
+     */
+    FlushModeType value();
+}
@@ -18,7 +18,9 @@
 package org.lambico.dao.generic;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Common methods for Dao.
@@ -45,6 +47,28 @@ public interface GenericDaoBase<T, PK extends Serializable> {
      */
     T get(PK id);
 
+    /**
+     * Check if an entity instance with a specified primary key value exists,
+     * without reading the instance.
+     *
+     * @param id The value of the primary key.
+     * @return true if the instance exists.
+     */
+    boolean exists(PK id);
+
+    /**
+     * Read the entity instances with the specified primary key values.
+     *
+     * The instances already in the session or in the second-level cache are
+     * taken from there, the others are read with queries selecting many
+     * instances at once.
+     *
+     * @param ids The values of the primary keys.
+     * @return The entities by primary key, iterated in the order of the requested
+     * values. The values without an instance are missing from the map.
+     */
+    Map<PK, T> getAll(Collection<PK> ids);
+
     /**
      * Create or update an object.
      *
@@ -66,6 +90,48 @@ public interface GenericDaoBase<T, PK extends Serializable> {
      */
     void delete(T persistentObject);
 
+    /**
+     * Make persistent a collection of objects.
+     *
+     * The session is flushed every batch of objects, and the objects loaded
+     * since the start of the operation are evicted from it, so the memory it uses
+     * doesn't grow with the size of the collection. The persisted objects (and
+     * the ones loaded by persisting them) become detached, while the objects
+     * already in the session before the operation are kept.
+     *
+     * @param transientObjects The objects to persist.
+     * @return The count of the persisted objects.
+     */
+    int createAll(Collection<? extends T> transientObjects);
+
+    /**
+     * Store (create or update) a collection of objects.
+     *
+     * The session is flushed every batch of objects, and the objects loaded
+     * since the start of the operation are evicted from it, so the memory it uses
+     * doesn't grow with the size of the collection. The stored instances (and
+     * the ones loaded by merging them) become detached, while the objects
+     * already in the session before the operation are kept.
+     *
+     * @param objects The objects to store.
+     * @return The count of the stored objects.
+     */
+    int storeAll(Collection<? extends T> objects);
+
+    /**
+     * Remove a collection of objects from persistent storage in the database.
+     *
+     * The session is flushed every batch of objects, and the objects loaded
+     * since the start of the operation are evicted from it, so the memory it uses
+     * doesn't grow with the size of the collection. The objects loaded by
+     * deleting them become detached, while the objects already in the session
+     * before the operation are kept.
+     *
+     * @param persistentObjects The persistent objects to delete.
+     * @return The count of the deleted objects.
+     */
+    int deleteAll(Collection<? extends T> persistentObjects);
+
     /**
      * Retrieve all the instances of the DAO entity.
      *
@@ -73,9 +139,22 @@ public interface GenericDaoBase<T, PK extends Serializable> {
      */
     List<T> findAll();
 
+    /**
+     * Retrieve all the instances of the DAO entity in read-only mode.
+     *
+     * The instances are not checked for changes at flush time, and their
+     * changes are never written to the database.
+     *
+     * @return All the instances of the DAO entity.
+     */
+    List<T> findAllReadOnly();
+
     /**
      * Delete all the instances of the DAO entity.
      *
+     * The implementations can delete the instances by a bulk statement,
+     * without loading them.
+     *
      * @return The count of the deleted instances.
      */
     int deleteAll();
@@ -87,6 +166,17 @@ public interface GenericDaoBase<T, PK extends Serializable> {
      */
     long count();
 
+    /**
+     * Estimate the count of all the instances of the DAO entity.
+     *
+     * The implementations can use the statistics of the database, that are much
+     * cheaper to read than an exact count on big tables, but not up to date.
+     * If no estimate is available, it's the exact count.
+     *
+     * @return The estimated count of all the instances of the DAO entity.
+     */
+    long estimateCount();
+
     /**
      * Rollback the current transaction.
      */
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.dao.generic;
+
+import java.util.List;
+
+/**
+ * A page in a result paginated by keyset (or seek) pagination.
+ *
+ * Instead of skipping the rows of the previous pages, the next page is
+ * selected starting after the key of the last row of this page, so reading
+ * a page costs the same at any depth of the result.
+ *
+ * @param <T> The type of the entity instance in the page.
+ * @version $Revision$
+ */
+public interface KeysetPage<T> {
+
+    /**
+     * Return the content of the page.
+     *
+     * @return The content, i.e. the list of entity instances.
+     */
+    List<T> getList();
+
+    /**
+     * Returns the continuation key for reading the next page, i.e. the values
+     * of the key properties of the last entity instance in this page.
+     *
+     * @return The continuation key, null if there isn't a next page.
+     */
+    Object[] getNextKey();
+
+    /**
+     * Checks if there exists a following page.
+     *
+     * @return true if there is a page after the current page.
+     */
+    boolean isNextPage();
+}
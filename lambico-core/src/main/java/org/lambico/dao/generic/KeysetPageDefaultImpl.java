@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.dao.generic;
+
+import java.util.List;
+
+/**
+ * The default implementation of the {@link KeysetPage} interface.
+ *
+ * @param <T> The type of the entity instance in the page.
+ * @version $Revision$
+ */
+public class KeysetPageDefaultImpl<T> implements KeysetPage<T> {
+
+    /**
+     * The content of the page.
+     */
+    private List<T> results;
+    /**
+     * The continuation key for the next page.
+     */
+    private Object[] nextKey;
+
+    /**
+     * The constructor of a page.
+     *
+     * @param list The page content.
+     * @param nextKey The continuation key for the next page, null if it's the last page.
+     */
+    public KeysetPageDefaultImpl(final List<T> list, final Object[] nextKey) {
+        this.results = list;
+        this.nextKey = nextKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public List<T> getList() {
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Object[] getNextKey() {
+        return nextKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isNextPage() {
+        return nextKey != null;
+    }
+}
@@ -29,6 +29,8 @@ import java.lang.annotation.Target;
  * An annotation for marking a parameter of a finder for the max number
  * of records to return (for example, for paginating).
  *
+ * The parameter must be an int or an Integer. A null or negative value means no limit.
+ *
  * @author <a href="mailto:lucio.benfante@jugpadova.it">Lucio Benfante</a>
  * @version $Revision$
  */
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.dao.generic;
+
+import java.util.List;
+
+/**
+ * A {@link Page} built without counting the total number of rows.
+ *
+ * It only knows if there is a page after the current one, so the last page
+ * and the row count are the ones known so far: the last page is the next
+ * one (if it exists) or the current one, and the row count includes the rows
+ * of the previous pages, the rows of this page, and one more row if there is a
+ * next page.
+ *
+ * @param <T> The type of the entity instance in the page.
+ * @version $Revision$
+ */
+public class PageUncountedImpl<T> implements Page<T> {
+
+    /**
+     * The content of the page.
+     */
+    private List<T> results;
+    /**
+     * The size of the page, i.e. the max number of rows in a single page.
+     */
+    private int pageSize;
+    /**
+     * The index of the current page.
+     */
+    private int page;
+    /**
+     * true if there is a page after the current one.
+     */
+    private boolean nextPage;
+
+    /**
+     * The constructor of a page.
+     *
+     * @param list The page content.
+     * @param page The index of the page.
+     * @param pageSize The size of the page.
+     * @param nextPage true if there is a page after this one.
+     */
+    public PageUncountedImpl(final List<T> list, final int page,
+            final int pageSize, final boolean nextPage) {
+        this.page = page;
+        this.pageSize = pageSize;
+        this.nextPage = nextPage;
+        results = list;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isNextPage() {
+        return nextPage;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isPreviousPage() {
+        return page > 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public List<T> getList() {
+        return results;
+    }
+
+    /**
+     * Returns the index of the last page known so far.
+     *
+     * @return The index of the next page if it exists, otherwise the index of this page.
+     */
+    @Override
+    public int getLastPage() {
+        return nextPage ? page + 1 : page;
+    }
+
+    /**
+     * Returns the number of rows known so far.
+     *
+     * @return The rows of the previous pages and of this page, plus one if
+     * there is a next page.
+     */
+    @Override
+    public int getRowCount() {
+        return (page - 1) * pageSize + results.size() + (nextPage ? 1 : 0);
+    }
+}
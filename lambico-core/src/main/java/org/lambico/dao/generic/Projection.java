@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.dao.generic;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Use this annotation on finder methods for selecting only some properties
+ * of the entities, instead of the entities.
+ *
+ * The elements of the result are built from the values of the properties,
+ * depending on the return type of the method:
+ * <ul>
+ * <li>a scalar type (a primitive, a String, a Number, a Date...): the value of the single property;</li>
+ * <li>Object[]: the values of the properties;</li>
+ * <li>any other class: an instance built with the constructor whose parameters
+ * match the properties.</li>
+ * </ul>
+ *
+ * A finder returning a class that is not an entity can omit the annotation:
+ * the selected properties are the writable properties of the class that
+ * are also properties of the entity, and the instances are populated through
+ * their setters.
+ *
+ * @version $Revision$
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD })
+public @interface Projection {
+
+    /**
+     * The paths of the selected properties, in the order of the values.
+     */
+    String[] value();
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.dao.generic;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Use this annotation on DAO finder methods, or on a DAO interface for all
+ * its finder methods, when the returned entities are not going to be modified.
+ *
+ * The entities are loaded in read-only mode: no snapshot is kept for them,
+ * so they don't take part in the dirty checking at flush time, and their
+ * changes are never written to the database.
+ *
+ * @version $Revision$
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE })
+public @interface ReadOnly {
+
+    /**
+     * true for evicting the returned entities from the session, so they don't
+     * use its memory at all. The lazy associations of the evicted entities
+     * can't be initialized anymore.
+     */
+    boolean evict() default false;
+}
@@ -20,6 +20,7 @@ package org.lambico.dao.hibernate;
 import java.util.List;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.lambico.dao.generic.KeysetPage;
 import org.lambico.dao.generic.Page;
 
 /**
@@ -86,6 +87,28 @@ public interface GenericDaoHibernateCriteriaSupport<T> {
      * @return The result of the search with the provided criteria.
      */
     Page<T> searchPaginatedByCriteria(int page, int pageSize, int totalRecords, DetachedCriteria criteria);
+
+    /**
+     * Search using a criteria with keyset pagination.
+     *
+     * The results are ordered by the key properties (ascending), and the page
+     * starts after the row with the provided key, so the database doesn't read
+     * and skip the rows of the previous pages. Use the continuation key of the
+     * returned page for reading the following page.
+     * The orderings of the criteria are ignored. The key properties must never be
+     * null: a null value in the last key, or in the key of the last row of a page,
+     * is rejected with an exception.
+     *
+     * @param criteria The Criteria.
+     * @param lastKey The values of the key properties of the last row already read,
+     *                null for reading the first page.
+     * @param pageSize The page width, i.e. the max number of elements on each page.
+     * @param keyProperties The properties of the entity identifying uniquely each row.
+     *                      If none, the identifier property is used.
+     * @return The page of the result of the search with the provided criteria.
+     */
+    KeysetPage<T> searchKeysetPaginatedByCriteria(DetachedCriteria criteria, Object[] lastKey,
+            int pageSize, String... keyProperties);
     
     /**
      * Count on the result of a search using a Criteria.
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Core.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.dao.generic;
+
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lambico.po.hibernate.EntityBase;
+import static org.junit.Assert.*;
+
+/**
+ * Tests on the page built without counting the rows.
+ */
+public class PageUncountedImplTest {
+
+    /** The full set of data. */
+    private static List<EntityBase> allData = new LinkedList<EntityBase>();
+
+    /**
+     * Initialize the full set of data.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        for (long i = 1; i <= 5; i++) {
+            allData.add(new PageDefaultImplTest.EntityBaseImpl(Long.valueOf(i)));
+        }
+    }
+
+    /**
+     * Test of a page followed by other pages.
+     */
+    @Test
+    public void testFirstPage() {
+        PageUncountedImpl<EntityBase> instance =
+                new PageUncountedImpl<EntityBase>(allData.subList(0, 2), 1, 2, true);
+        assertEquals(1, instance.getPage());
+        assertTrue(instance.isNextPage());
+        assertFalse(instance.isPreviousPage());
+        assertEquals(2, instance.getLastPage());
+        assertEquals(3, instance.getRowCount());
+        assertEquals(2, instance.getList().size());
+    }
+
+    /**
+     * Test of the last page.
+     */
+    @Test
+    public void testLastPage() {
+        PageUncountedImpl<EntityBase> instance =
+                new PageUncountedImpl<EntityBase>(allData.subList(4, 5), 3, 2, false);
+        assertFalse(instance.isNextPage());
+        assertTrue(instance.isPreviousPage());
+        assertEquals(3, instance.getLastPage());
+        assertEquals(5, instance.getRowCount());
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Index.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.index;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * An annotation processor writing the index of the persistent classes and of
+ * the DAO interfaces of a module.
+ *
+ * The binary names of the types annotated with {@link #ENTITY_ANNOTATION} are
+ * written in {@link #ENTITIES_INDEX}, the ones of the types annotated with
+ * {@link #DAO_ANNOTATION} in {@link #DAOS_INDEX}, one for each line. When
+ * such indexes are in the classpath, the Lambico namespace parsers read them
+ * instead of scanning the packages of the entities and of the DAOs.
+ *
+ * For enabling the processor, add this module to the compile classpath of the
+ * module containing the entities and the DAO interfaces (for example with the
+ * <code>provided</code> scope). An index is written only if it's not empty,
+ * so a module without entities doesn't hide the entities of the modules
+ * compiled without the processor. The processor runs on every compilation,
+ * even without annotated types, for removing from the indexes the types no
+ * more annotated.
+ *
+ * @version $Revision$
+ */
+@SupportedAnnotationTypes("*")
+public class LambicoIndexProcessor extends AbstractProcessor {
+
+    /** The annotation marking the persistent classes. */
+    public static final String ENTITY_ANNOTATION = "javax.persistence.Entity";
+    /** The annotation marking the DAO interfaces. */
+    public static final String DAO_ANNOTATION = "org.lambico.dao.generic.Dao";
+    /** The location of the index of the persistent classes. */
+    public static final String ENTITIES_INDEX = "META-INF/lambico/entities";
+    /** The location of the index of the DAO interfaces. */
+    public static final String DAOS_INDEX = "META-INF/lambico/daos";
+    private final Set<String> entities = new TreeSet<String>();
+    private final Set<String> daos = new TreeSet<String>();
+    private final Set<String> previousEntities = new TreeSet<String>();
+    private final Set<String> previousDaos = new TreeSet<String>();
+    private final Set<String> compiledTypes = new HashSet<String>();
+    private boolean previousIndexesRead;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+            final RoundEnvironment roundEnv) {
+        if (!previousIndexesRead) {
+            readIndex(ENTITIES_INDEX, previousEntities);
+            readIndex(DAOS_INDEX, previousDaos);
+            previousIndexesRead = true;
+        }
+        collectTypes(ElementFilter.typesIn(roundEnv.getRootElements()));
+        for (TypeElement annotation : annotations) {
+            String annotationName = annotation.getQualifiedName().toString();
+            Set<String> index;
+            if (ENTITY_ANNOTATION.equals(annotationName)) {
+                index = entities;
+            } else if (DAO_ANNOTATION.equals(annotationName)) {
+                index = daos;
+            } else {
+                continue;
+            }
+            for (TypeElement type
+                    : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                index.add(binaryName(type));
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex(ENTITIES_INDEX, entities, previousEntities);
+            writeIndex(DAOS_INDEX, daos, previousDaos);
+        }
+        return false;
+    }
+
+    /**
+     * Collect the names of the types compiled in this build, including the
+     * nested types.
+     *
+     * @param types The types to collect.
+     */
+    private void collectTypes(final Iterable<TypeElement> types) {
+        for (TypeElement type : types) {
+            compiledTypes.add(binaryName(type));
+            collectTypes(ElementFilter.typesIn(type.getEnclosedElements()));
+        }
+    }
+
+    /**
+     * Return the binary name of a type, the one used for loading its class.
+     *
+     * @param type The type.
+     * @return The binary name of the type.
+     */
+    private String binaryName(final TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    /**
+     * Read an index written by a previous build in the same output directory.
+     *
+     * @param location The location of the index.
+     * @param names The set where the names in the index are added.
+     */
+    private void readIndex(final String location, final Set<String> names) {
+        BufferedReader reader = null;
+        try {
+            FileObject resource = processingEnv.getFiler().
+                    getResource(StandardLocation.CLASS_OUTPUT, "", location);
+            reader = new BufferedReader(
+                    new InputStreamReader(resource.openInputStream(), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    names.add(line);
+                }
+            }
+        } catch (IOException e) {
+            // no previous index
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * Write an index, keeping the entries of a previous build for the types
+     * still existing and not compiled in this build (incremental compilation).
+     *
+     * @param location The location of the index.
+     * @param names The names found in this build.
+     * @param previousNames The names of the previous index.
+     */
+    private void writeIndex(final String location, final Set<String> names,
+            final Set<String> previousNames) {
+        for (String name : previousNames) {
+            if (!compiledTypes.contains(name)
+                    && processingEnv.getElementUtils().
+                    getTypeElement(name.replace('$', '.')) != null) {
+                names.add(name);
+            }
+        }
+        if (names.isEmpty() && previousNames.isEmpty()) {
+            return;
+        }
+        Writer writer = null;
+        try {
+            FileObject resource = processingEnv.getFiler().
+                    createResource(StandardLocation.CLASS_OUTPUT, "", location);
+            writer = new OutputStreamWriter(resource.openOutputStream(), "UTF-8");
+            for (String name : names) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write the Lambico index " + location + ": " + e.getMessage());
+        } finally {
+            close(writer);
+        }
+    }
+
+    /**
+     * Close a stream, ignoring the errors.
+     *
+     * @param closeable The stream to close. It can be null.
+     */
+    private static void close(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore it
+            }
+        }
+    }
+}
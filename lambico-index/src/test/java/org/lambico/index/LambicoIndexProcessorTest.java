@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Index.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+
+/**
+ * Tests on the LambicoIndexProcessor class.
+ *
+ * @version $Revision$
+ */
+public class LambicoIndexProcessorTest extends TestCase {
+
+    private static final String ENTITY =
+            "package javax.persistence; public @interface Entity {}";
+    private static final String DAO =
+            "package org.lambico.dao.generic; public @interface Dao { Class entity(); }";
+    private static final String PERSON =
+            "package test; @javax.persistence.Entity public class Person {"
+            + " @javax.persistence.Entity public static class Address {} }";
+    private static final String PERSON_DAO =
+            "package test; @org.lambico.dao.generic.Dao(entity = Person.class)"
+            + " public interface PersonDao {}";
+    private File outputDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        outputDir = File.createTempFile("lambico-index", "");
+        outputDir.delete();
+        outputDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(outputDir);
+        super.tearDown();
+    }
+
+    public void testIndexes() throws IOException {
+        compile("javax.persistence.Entity", ENTITY, "org.lambico.dao.generic.Dao", DAO,
+                "test.Person", PERSON, "test.PersonDao", PERSON_DAO,
+                "test.Other", "package test; public class Other {}");
+        assertEquals(Arrays.asList("test.Person", "test.Person$Address"),
+                readIndex(LambicoIndexProcessor.ENTITIES_INDEX));
+        assertEquals(Arrays.asList("test.PersonDao"),
+                readIndex(LambicoIndexProcessor.DAOS_INDEX));
+    }
+
+    public void testNoIndexWithoutAnnotatedTypes() throws IOException {
+        compile("javax.persistence.Entity", ENTITY,
+                "test.Other", "package test; public class Other {}");
+        assertNull(readIndex(LambicoIndexProcessor.ENTITIES_INDEX));
+        assertNull(readIndex(LambicoIndexProcessor.DAOS_INDEX));
+    }
+
+    public void testIncrementalCompilation() throws IOException {
+        compile("javax.persistence.Entity", ENTITY, "org.lambico.dao.generic.Dao", DAO,
+                "test.Person", PERSON, "test.PersonDao", PERSON_DAO);
+        compile("test.Car", "package test; @javax.persistence.Entity public class Car {}");
+        assertEquals(Arrays.asList("test.Car", "test.Person", "test.Person$Address"),
+                readIndex(LambicoIndexProcessor.ENTITIES_INDEX));
+        assertEquals(Arrays.asList("test.PersonDao"),
+                readIndex(LambicoIndexProcessor.DAOS_INDEX));
+        compile("test.Person", "package test; public class Person {}");
+        assertEquals(Arrays.asList("test.Car"),
+                readIndex(LambicoIndexProcessor.ENTITIES_INDEX));
+    }
+
+    /**
+     * Compile some sources in the output directory, running the processor.
+     *
+     * @param namesAndSources Pairs of class names and source codes.
+     */
+    private void compile(final String... namesAndSources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+        for (int i = 0; i < namesAndSources.length; i += 2) {
+            units.add(new SourceObject(namesAndSources[i], namesAndSources[i + 1]));
+        }
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null,
+                Arrays.asList("-d", outputDir.getPath(), "-classpath", outputDir.getPath()),
+                null, units);
+        task.setProcessors(Arrays.asList(new LambicoIndexProcessor()));
+        assertTrue(task.call());
+    }
+
+    /**
+     * Read an index from the output directory.
+     *
+     * @param location The location of the index.
+     * @return The lines of the index, null if the index doesn't exist.
+     */
+    private List<String> readIndex(final String location) throws IOException {
+        File index = new File(outputDir, location);
+        if (!index.exists()) {
+            return null;
+        }
+        StringBuilder content = new StringBuilder();
+        Reader reader = new InputStreamReader(new FileInputStream(index), "UTF-8");
+        try {
+            char[] buffer = new char[1024];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, count);
+            }
+        } finally {
+            reader.close();
+        }
+        return Arrays.asList(content.toString().split("\n"));
+    }
+
+    private static void delete(final File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * A source file in memory.
+     */
+    private static class SourceObject extends SimpleJavaFileObject {
+
+        private final String source;
+
+        SourceObject(final String className, final String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension),
+                    Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+}
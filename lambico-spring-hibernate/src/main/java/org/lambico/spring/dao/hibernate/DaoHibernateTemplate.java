@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+import org.lambico.dao.generic.FlushModeType;
+import org.springframework.orm.hibernate3.HibernateTemplate;
+
+/**
+ * The Hibernate template of a DAO, applying also a query timeout to the
+ * queries it prepares.
+ *
+ * @version $Revision$
+ */
+class DaoHibernateTemplate extends HibernateTemplate {
+
+    /** The query timeout in seconds, 0 for no timeout. */
+    private int queryTimeout;
+
+    /**
+     * Build a template.
+     *
+     * @param sessionFactory The session factory.
+     */
+    DaoHibernateTemplate(final SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    /**
+     * Build a template with the query settings of another template, for
+     * preparing the queries created on the native session of that template.
+     *
+     * @param template The other template.
+     */
+    DaoHibernateTemplate(final HibernateTemplate template) {
+        super(template.getSessionFactory());
+        setCacheQueries(template.isCacheQueries());
+        setQueryCacheRegion(template.getQueryCacheRegion());
+        setFetchSize(template.getFetchSize());
+        setMaxResults(template.getMaxResults());
+    }
+
+    /**
+     * Get the timeout of the queries.
+     *
+     * @return The timeout in seconds, 0 for no timeout.
+     */
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * Set the timeout of the queries.
+     *
+     * @param queryTimeout The timeout in seconds, 0 for no timeout.
+     */
+    public void setQueryTimeout(final int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    /**
+     * Set the flush mode of the template from the flush mode of a DAO.
+     *
+     * @param flushModeType The flush mode.
+     */
+    public void setFlushModeType(final FlushModeType flushModeType) {
+        switch (flushModeType) {
+            case MANUAL:
+                setFlushMode(FLUSH_NEVER);
+                break;
+            case COMMIT:
+                setFlushMode(FLUSH_COMMIT);
+                break;
+            case ALWAYS:
+                setFlushMode(FLUSH_ALWAYS);
+                break;
+            case AUTO:
+            default:
+                setFlushMode(FLUSH_AUTO);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param queryObject {@inheritDoc}
+     */
+    @Override
+    public void prepareQuery(final Query queryObject) {
+        super.prepareQuery(queryObject);
+        if (queryTimeout > 0) {
+            queryObject.setTimeout(queryTimeout);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param criteria {@inheritDoc}
+     */
+    @Override
+    public void prepareCriteria(final Criteria criteria) {
+        super.prepareCriteria(criteria);
+        if (queryTimeout > 0) {
+            criteria.setTimeout(queryTimeout);
+        }
+    }
+}
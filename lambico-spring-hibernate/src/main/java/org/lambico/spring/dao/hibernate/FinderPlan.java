@@ -0,0 +1,1641 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.transform.AliasToBeanConstructorResultTransformer;
+import org.hibernate.transform.ResultTransformer;
+import org.hibernate.transform.Transformers;
+import org.lambico.dao.generic.CacheIt;
+import org.lambico.dao.generic.Compare;
+import org.lambico.dao.generic.CompareType;
+import org.lambico.dao.generic.Cursor;
+import org.lambico.dao.generic.Fetch;
+import org.lambico.dao.generic.FetchModeType;
+import org.lambico.dao.generic.FetchSize;
+import org.lambico.dao.generic.FirstResult;
+import org.lambico.dao.generic.MaxResults;
+import org.lambico.dao.generic.NamedParameter;
+import org.lambico.dao.generic.Page;
+import org.lambico.dao.generic.Projection;
+import org.lambico.dao.generic.QueryTimeout;
+import org.lambico.dao.generic.ReadOnly;
+import org.lambico.dao.generic.SkipCount;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * The immutable execution plan of a DAO method.
+ *
+ * It contains everything that can be derived from the method signature (query
+ * kind, role of each parameter, conditions and ordering parsed from the method
+ * name, shape of the result), so it can be computed only once for each method,
+ * leaving to the single invocation only the binding of the arguments.
+ *
+ * @version $Revision$
+ */
+public final class FinderPlan {
+
+    /** The "findBy" prefix. */
+    static final String FIND_BY_PREFIX = "findBy";
+    /** The "countBy" prefix. */
+    static final String COUNT_BY_PREFIX = "countBy";
+    /** The "existsBy" prefix. */
+    static final String EXISTS_BY_PREFIX = "existsBy";
+    /** The "deleteBy" prefix. */
+    static final String DELETE_BY_PREFIX = "deleteBy";
+    /** The "update" prefix. */
+    static final String UPDATE_PREFIX = "update";
+    /** The "By" separator between the updated properties and the conditions. */
+    static final String BY_SEPARATOR = "By";
+    /** The "OrderBy" separator. */
+    static final String ORDER_BY_SEPARATOR = "OrderBy";
+    /** The separator of the conditions in the method name ("And" between two capitalized words). */
+    static final Pattern AND_SEPARATOR = Pattern.compile("(?<=.)And(?=[A-Z])");
+    /** The separator of the groups of conditions in the method name ("Or" between two capitalized words). */
+    static final Pattern OR_SEPARATOR = Pattern.compile("(?<=.)Or(?=[A-Z])");
+    /** The suffix of a property compared with null. */
+    static final String IS_NULL_SUFFIX = "IsNull";
+    /** The suffix of a property compared with not null. */
+    static final String IS_NOT_NULL_SUFFIX = "IsNotNull";
+    /** The suffix of a property in descending order. */
+    static final String DESC_SUFFIX = "Desc";
+    /** The suffix of a property in ascending order. */
+    static final String ASC_SUFFIX = "Asc";
+
+    /**
+     * The kind of query executed by a DAO method.
+     */
+    public enum QueryKind {
+        /** A method of the DAO implementation, invoked directly. */
+        NATIVE,
+        /** A selection built from the method name (findBy...). */
+        FIND,
+        /** A count built from the method name (countBy...). */
+        COUNT,
+        /** An existence check built from the method name (existsBy...). */
+        EXISTS,
+        /** A bulk delete built from the method name (deleteBy...). */
+        DELETE,
+        /** A bulk update built from the method name (update...By...). */
+        UPDATE,
+        /** Any other method: a named query or a method of the DAO implementation. */
+        OTHER
+    }
+
+    /**
+     * The role of a parameter of a DAO method.
+     */
+    public enum ParameterRole {
+        /** A parameter of the query. */
+        QUERY,
+        /** The index of the first result to return. */
+        FIRST_RESULT,
+        /** The max number of results to return. */
+        MAX_RESULTS
+    }
+
+    /**
+     * The shape of the result of a DAO method.
+     */
+    public enum ResultType {
+        /** A List with all the results. */
+        LIST,
+        /** The first result, or null if there are no results. */
+        SINGLE,
+        /** A forward-only {@link Cursor} on the results (also as Iterator or Iterable). */
+        CURSOR,
+        /** A {@link Page} of the results, as selected by the FirstResult and MaxResults values. */
+        PAGE
+    }
+
+    /**
+     * How the elements of the result are built from the selected properties.
+     */
+    public enum ProjectionKind {
+        /** The entities, no projection. */
+        NONE,
+        /** The value of the single selected property. */
+        SCALAR,
+        /** An Object[] with the values of the selected properties. */
+        ARRAY,
+        /** An instance built with the constructor matching the selected properties. */
+        CONSTRUCTOR,
+        /** An instance populated through its setters of the selected properties. */
+        BEAN
+    }
+
+    /** The method. */
+    private final Method method;
+    /** The entity type of the DAO. */
+    private final Class<?> entityType;
+    /** The class of the DAO implementation, null if there isn't one. */
+    private final Class<?> daoClass;
+    /** The kind of the query. */
+    private final QueryKind queryKind;
+    /** The name of the named query for the method. */
+    private final String queryName;
+    /** true if the session factory defines the named query for the method. */
+    private final boolean namedQuery;
+    /** The role of each parameter. */
+    private final ParameterRole[] parameterRoles;
+    /** The name of each parameter bound to a named parameter, null for positional ones. */
+    private final String[] namedParameters;
+    /** For each parameter, true if it's an array or a collection. */
+    private final boolean[] listParameters;
+    /** The index of the FirstResult parameter, -1 if none. */
+    private final int firstResultIndex;
+    /** The index of the MaxResults parameter, -1 if none. */
+    private final int maxResultsIndex;
+    /** The conditions parsed from the method name. */
+    private final List<Condition> conditions;
+    /** The number of groups of conditions, in or between them. */
+    private final int conditionGroups;
+    /** The orderings parsed from the method name. */
+    private final List<Ordering> orderings;
+    /** The assignments of a bulk update parsed from the method name. */
+    private final List<Assignment> assignments;
+    /** The shape of the result. */
+    private final ResultType resultType;
+    /** How the elements of the result are built. */
+    private final ProjectionKind projectionKind;
+    /** The paths of the selected properties, null if there is no projection. */
+    private final String[] projection;
+    /** The transformer of the selected rows, null if they don't need a transformation. */
+    private final ResultTransformer resultTransformer;
+    /** true if the query results must be cached. */
+    private final boolean cacheable;
+    /** true if a Page result must be read without counting the rows. */
+    private final boolean skipCount;
+    /** true if the entities must be loaded in read-only mode. */
+    private final boolean readOnly;
+    /** true if the returned entities must be evicted from the session. */
+    private final boolean evictResults;
+    /** The JDBC fetch size of the query, null for the default. */
+    private final Integer fetchSize;
+    /** The timeout of the query in seconds, null for no timeout. */
+    private final Integer timeout;
+    /** The flush mode of the query, null for the session flush mode. */
+    private final org.hibernate.FlushMode flushMode;
+    /** The paths of the associations fetched by a join in the query. */
+    private final List<String> joinFetches;
+    /** true if a collection is fetched by a join in the query. */
+    private final boolean fetchingCollections;
+    /** The HQL queries fetching the associations of the results after the query. */
+    private final List<String> subselectFetchQueries;
+    /** The reason why the conditions can't be derived from the method name, null if they can. */
+    private final String parseError;
+    /** The HQL query equivalent to the method name, null if it's not a method-name query. */
+    private final String hql;
+    /** The HQL query counting the rows of the method-name query, null if it's not such a query. */
+    private final String countHql;
+
+    /**
+     * Build a plan. Use {@link #build(java.lang.Class, java.lang.reflect.Method)}.
+     *
+     * @param builder The builder with the plan values.
+     */
+    private FinderPlan(final Builder builder) {
+        this.method = builder.method;
+        this.entityType = builder.entityType;
+        this.daoClass = builder.daoClass;
+        this.queryKind = builder.queryKind;
+        this.queryName = builder.queryName;
+        this.namedQuery = builder.namedQuery;
+        this.parameterRoles = builder.parameterRoles;
+        this.namedParameters = builder.namedParameters;
+        this.listParameters = builder.listParameters;
+        this.firstResultIndex = builder.firstResultIndex;
+        this.maxResultsIndex = builder.maxResultsIndex;
+        this.conditions = Collections.unmodifiableList(builder.conditions);
+        this.conditionGroups = builder.conditions.isEmpty() ? 0
+                : builder.conditions.get(builder.conditions.size() - 1).getGroup() + 1;
+        this.orderings = Collections.unmodifiableList(builder.orderings);
+        this.assignments = Collections.unmodifiableList(builder.assignments);
+        this.resultType = builder.resultType;
+        this.projectionKind = builder.projectionKind;
+        this.projection = builder.projection;
+        this.resultTransformer = builder.resultTransformer;
+        this.cacheable = builder.cacheable;
+        this.parseError = builder.parseError;
+        this.hql = builder.hql;
+        this.countHql = builder.countHql;
+        this.skipCount = builder.skipCount;
+        this.readOnly = builder.readOnly != null;
+        this.evictResults = builder.readOnly != null && builder.readOnly.evict();
+        this.fetchSize = builder.fetchSize;
+        this.timeout = builder.timeout;
+        this.flushMode = builder.flushMode;
+        this.joinFetches = Collections.unmodifiableList(builder.joinFetches);
+        this.fetchingCollections = builder.fetchingCollections;
+        this.subselectFetchQueries = Collections.unmodifiableList(builder.subselectFetchQueries);
+    }
+
+    /**
+     * Build the plan of a DAO method, without resolving its named query.
+     *
+     * @param entityType The entity type of the DAO.
+     * @param method The method.
+     * @return The plan of the method.
+     */
+    public static FinderPlan build(final Class<?> entityType, final Method method) {
+        return build(entityType, method, null);
+    }
+
+    /**
+     * Build the plan of a DAO method.
+     *
+     * @param entityType The entity type of the DAO.
+     * @param method The method.
+     * @param sessionFactory The session factory used for resolving the named query
+     *                       of the method. It can be null, if you don't need such resolution.
+     * @return The plan of the method.
+     */
+    public static FinderPlan build(final Class<?> entityType, final Method method,
+            final SessionFactory sessionFactory) {
+        return build(entityType, method, sessionFactory, null);
+    }
+
+    /**
+     * Build the plan of a DAO method.
+     *
+     * A deleteBy... or update...By... method is a bulk statement only if the
+     * DAO implementation doesn't implement the interface declaring it, otherwise
+     * it's dispatched to the implementation.
+     *
+     * @param entityType The entity type of the DAO.
+     * @param method The method.
+     * @param sessionFactory The session factory used for resolving the named query
+     *                       of the method. It can be null, if you don't need such resolution.
+     * @param daoClass The class of the DAO implementation. It can be null, if the
+     *                 DAO has no implementation of its own methods.
+     * @return The plan of the method.
+     */
+    public static FinderPlan build(final Class<?> entityType, final Method method,
+            final SessionFactory sessionFactory, final Class<?> daoClass) {
+        Builder builder = new Builder(entityType, method, daoClass);
+        if (HibernateDaoUtils.isAKnownNativeMethod(method)) {
+            builder.queryKind = QueryKind.NATIVE;
+        } else {
+            builder.analyzeParameters();
+            if (sessionFactory != null) {
+                builder.resolveNamedQuery(sessionFactory);
+            }
+            builder.analyzeName();
+            builder.analyzeProjection();
+            builder.analyzeFetch();
+            builder.buildHql();
+        }
+        return new FinderPlan(builder);
+    }
+
+    /**
+     * Get the value of the first result parameter.
+     *
+     * @param args The arguments of the invocation.
+     * @return The value of the first result parameter, null if there isn't such parameter.
+     */
+    public Integer getFirstResult(final Object[] args) {
+        return firstResultIndex < 0 ? null : (Integer) args[firstResultIndex];
+    }
+
+    /**
+     * Get the value of the max results parameter.
+     *
+     * @param args The arguments of the invocation.
+     * @return The value of the max results parameter, null if there isn't such parameter.
+     */
+    public Integer getMaxResults(final Object[] args) {
+        return maxResultsIndex < 0 ? null : (Integer) args[maxResultsIndex];
+    }
+
+    /**
+     * Check if the parameter is a parameter for the query.
+     *
+     * @param index The index of the parameter.
+     * @return true if the parameter is for the query.
+     */
+    public boolean isQueryParameter(final int index) {
+        return parameterRoles[index] == ParameterRole.QUERY;
+    }
+
+    /**
+     * Get the name of the named parameter bound to a method parameter.
+     *
+     * @param index The index of the parameter.
+     * @return The name of the named parameter, null if it's a positional parameter.
+     */
+    public String getNamedParameter(final int index) {
+        return namedParameters[index];
+    }
+
+    /**
+     * Check if a parameter is an array or a collection.
+     *
+     * @param index The index of the parameter.
+     * @return true if the parameter is an array or a collection.
+     */
+    public boolean isListParameter(final int index) {
+        return listParameters[index];
+    }
+
+    /**
+     * Check if the method queries using the method name.
+     *
+     * @return true for findBy..., countBy... and existsBy... methods.
+     */
+    public boolean isMethodNameQuery() {
+        return queryKind == QueryKind.FIND || queryKind == QueryKind.COUNT
+                || queryKind == QueryKind.EXISTS;
+    }
+
+    /**
+     * Check if the method executes a bulk statement.
+     *
+     * @return true for deleteBy... and update...By... methods.
+     */
+    public boolean isBulkUpdate() {
+        return queryKind == QueryKind.DELETE || queryKind == QueryKind.UPDATE;
+    }
+
+    /**
+     * Get the method.
+     *
+     * @return The method.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the entity type of the DAO.
+     *
+     * @return The entity type.
+     */
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Get the class of the DAO implementation the plan was built for.
+     *
+     * @return The class of the DAO implementation, null if there isn't one.
+     */
+    public Class<?> getDaoClass() {
+        return daoClass;
+    }
+
+    /**
+     * Get the kind of the query.
+     *
+     * @return The kind of the query.
+     */
+    public QueryKind getQueryKind() {
+        return queryKind;
+    }
+
+    /**
+     * Get the name of the named query for the method.
+     *
+     * At present the name is:
+     *
+     * &lt;DAO entity type simple name&gt;.&lt;method name&gt;
+     *
+     * @return The name of the named query.
+     */
+    public String getQueryName() {
+        return queryName;
+    }
+
+    /**
+     * Check if the method is executed through its named query.
+     *
+     * @return true if the session factory defines the named query for the method.
+     */
+    public boolean isNamedQuery() {
+        return namedQuery;
+    }
+
+    /**
+     * Get the number of parameters of the method.
+     *
+     * @return The number of parameters.
+     */
+    public int getParameterCount() {
+        return parameterRoles.length;
+    }
+
+    /**
+     * Get the conditions parsed from the method name.
+     *
+     * @return The conditions.
+     */
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Get the number of groups of conditions. The conditions of a group are
+     * in and, the groups are in or (findByAAndBOrC has two groups).
+     *
+     * @return The number of groups, 0 if there are no conditions.
+     */
+    public int getConditionGroups() {
+        return conditionGroups;
+    }
+
+    /**
+     * Get the name of the HQL named parameter bound to an IN condition.
+     *
+     * @param conditionIndex The index of the condition.
+     * @return The name of the parameter.
+     */
+    static String listParameterName(final int conditionIndex) {
+        return "p" + conditionIndex;
+    }
+
+    /**
+     * Get the orderings parsed from the method name.
+     *
+     * @return The orderings.
+     */
+    public List<Ordering> getOrderings() {
+        return orderings;
+    }
+
+    /**
+     * Get the assignments of a bulk update parsed from the method name.
+     *
+     * @return The assignments, empty if it's not an update.
+     */
+    public List<Assignment> getAssignments() {
+        return assignments;
+    }
+
+    /**
+     * Check if the method returns a List.
+     *
+     * @return true if the method returns a List.
+     */
+    public boolean isListResult() {
+        return resultType == ResultType.LIST;
+    }
+
+    /**
+     * Get the shape of the result of the method.
+     *
+     * @return The result type.
+     */
+    public ResultType getResultType() {
+        return resultType;
+    }
+
+    /**
+     * Get how the elements of the result are built from the selected properties.
+     *
+     * @return The kind of projection, NONE if the method returns entities or
+     *         executes a named query.
+     */
+    public ProjectionKind getProjectionKind() {
+        return projectionKind;
+    }
+
+    /**
+     * Get the paths of the properties selected by the method.
+     *
+     * @return The property paths, null if the method returns entities or
+     *         executes a named query.
+     */
+    public String[] getProjection() {
+        return projection == null ? null : projection.clone();
+    }
+
+    /**
+     * Get the paths of the properties selected by the method, without copying
+     * them, for the execution of the method. The array must not be changed.
+     *
+     * @return The property paths, null if the method returns entities or
+     *         executes a named query.
+     */
+    String[] getProjectionPaths() {
+        return projection;
+    }
+
+    /**
+     * Get the transformer building the elements of the result from the
+     * selected properties. It's stateless, so it's shared by all the invocations.
+     *
+     * @return The transformer, null if the rows don't need a transformation,
+     *         as the results of a named query.
+     */
+    public ResultTransformer getResultTransformer() {
+        return resultTransformer;
+    }
+
+    /**
+     * Check if the results of the query must be cached.
+     *
+     * @return true if the method is annotated with {@link CacheIt}.
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Check if a Page result must be read without counting the rows.
+     *
+     * @return true if the method is annotated with {@link SkipCount}.
+     */
+    public boolean isSkipCount() {
+        return skipCount;
+    }
+
+    /**
+     * Check if the entities must be loaded in read-only mode.
+     *
+     * @return true if the method, or its DAO interface, is annotated with {@link ReadOnly}.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Check if the returned entities must be evicted from the session.
+     *
+     * @return true if the {@link ReadOnly} annotation requests the eviction.
+     */
+    public boolean isEvictResults() {
+        return evictResults;
+    }
+
+    /**
+     * Get the JDBC fetch size of the query.
+     *
+     * @return The value of the {@link FetchSize} annotation of the method, or of its
+     *         DAO interface, null if there is no such annotation.
+     */
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Get the timeout of the query.
+     *
+     * @return The value in seconds of the {@link QueryTimeout} annotation of the method,
+     *         or of its DAO interface, null if there is no such annotation.
+     */
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Get the flush mode of the query.
+     *
+     * @return The flush mode from the {@link org.lambico.dao.generic.FlushMode}
+     *         annotation of the method, or of its DAO interface, null if there is
+     *         no such annotation.
+     */
+    public org.hibernate.FlushMode getFlushMode() {
+        return flushMode;
+    }
+
+    /**
+     * Get the paths of the associations fetched by a join in the query.
+     *
+     * @return The paths, empty if the method doesn't fetch associations with the JOIN mode.
+     */
+    public List<String> getJoinFetches() {
+        return joinFetches;
+    }
+
+    /**
+     * Check if a collection is fetched by a join in the query. In such case
+     * the query must return distinct entities, so it must be executed in HQL.
+     * It's never the case of the paginated or single-result finders, whose
+     * collections are fetched with the SUBSELECT mode.
+     *
+     * @return true if a path of the join fetches is (or crosses) a collection.
+     */
+    public boolean isFetchingCollections() {
+        return fetchingCollections;
+    }
+
+    /**
+     * Get the HQL queries fetching the associations of the results, with the
+     * SUBSELECT mode. Each query has an <code>ids</code> named parameter,
+     * for the primary key values of the results.
+     *
+     * @return The queries, one for each path, empty if there are none.
+     */
+    public List<String> getSubselectFetchQueries() {
+        return subselectFetchQueries;
+    }
+
+    /**
+     * Get the reason why the query can't be derived from the method name.
+     *
+     * @return The error message, null if the method name has been correctly parsed.
+     */
+    public String getParseError() {
+        return parseError;
+    }
+
+    /**
+     * Get the HQL query equivalent to the method name.
+     *
+     * The query uses positional parameters, bound in the order of
+     * the assignments (see {@link #getAssignments()}) and of
+     * the conditions (see {@link #getConditions()}).
+     *
+     * @return The HQL query, null if it's not a method-name query or the name can't be parsed.
+     */
+    public String getHql() {
+        return hql;
+    }
+
+    /**
+     * Get the HQL query counting the rows selected by the method name,
+     * ignoring the ordering.
+     *
+     * @return The HQL count query, null if it's not a method-name query.
+     */
+    public String getCountHql() {
+        return countHql;
+    }
+
+    /**
+     * A condition on a property, parsed from the method name.
+     */
+    public static final class Condition {
+
+        /** The property path. */
+        private final String propertyPath;
+        /** The type of comparison. */
+        private final CompareType compareType;
+        /** The index of the method argument to compare with. */
+        private final int argumentIndex;
+        /** The index of the method argument with the upper bound of a BETWEEN. */
+        private final int upperArgumentIndex;
+        /** The group of the condition. */
+        private final int group;
+
+        /**
+         * Build a condition.
+         *
+         * @param propertyPath The property path.
+         * @param compareType The type of comparison.
+         * @param argumentIndex The index of the method argument to compare with.
+         */
+        Condition(final String propertyPath, final CompareType compareType,
+                final int argumentIndex) {
+            this(propertyPath, compareType, argumentIndex, -1, 0);
+        }
+
+        /**
+         * Build a condition.
+         *
+         * @param propertyPath The property path.
+         * @param compareType The type of comparison.
+         * @param argumentIndex The index of the method argument to compare with,
+         *        -1 if the comparison doesn't use an argument.
+         * @param upperArgumentIndex The index of the method argument with the upper
+         *        bound of a BETWEEN, -1 for the other comparisons.
+         * @param group The group of the condition.
+         */
+        Condition(final String propertyPath, final CompareType compareType,
+                final int argumentIndex, final int upperArgumentIndex, final int group) {
+            this.propertyPath = propertyPath;
+            this.compareType = compareType;
+            this.argumentIndex = argumentIndex;
+            this.upperArgumentIndex = upperArgumentIndex;
+            this.group = group;
+        }
+
+        /**
+         * Get the property path.
+         *
+         * @return The property path.
+         */
+        public String getPropertyPath() {
+            return propertyPath;
+        }
+
+        /**
+         * Get the type of comparison.
+         *
+         * @return The type of comparison.
+         */
+        public CompareType getCompareType() {
+            return compareType;
+        }
+
+        /**
+         * Get the index of the method argument to compare with.
+         *
+         * @return The argument index, -1 for IS_NULL and IS_NOT_NULL conditions.
+         */
+        public int getArgumentIndex() {
+            return argumentIndex;
+        }
+
+        /**
+         * Get the index of the method argument with the upper bound of a BETWEEN.
+         *
+         * @return The argument index, -1 if it's not a BETWEEN condition.
+         */
+        public int getUpperArgumentIndex() {
+            return upperArgumentIndex;
+        }
+
+        /**
+         * Get the group of the condition (see {@link FinderPlan#getConditionGroups()}).
+         *
+         * @return The index of the group.
+         */
+        public int getGroup() {
+            return group;
+        }
+    }
+
+    /**
+     * An ordering on a property, parsed from the method name.
+     */
+    public static final class Ordering {
+
+        /** The property path. */
+        private final String propertyPath;
+        /** true for ascending order. */
+        private final boolean ascending;
+
+        /**
+         * Build an ordering.
+         *
+         * @param propertyPath The property path.
+         * @param ascending true for ascending order.
+         */
+        Ordering(final String propertyPath, final boolean ascending) {
+            this.propertyPath = propertyPath;
+            this.ascending = ascending;
+        }
+
+        /**
+         * Get the property path.
+         *
+         * @return The property path.
+         */
+        public String getPropertyPath() {
+            return propertyPath;
+        }
+
+        /**
+         * Check the direction of the ordering.
+         *
+         * @return true for ascending order.
+         */
+        public boolean isAscending() {
+            return ascending;
+        }
+    }
+
+    /**
+     * An assignment of a property in a bulk update, parsed from the method name.
+     */
+    public static final class Assignment {
+
+        /** The property path. */
+        private final String propertyPath;
+        /** The index of the method argument with the new value. */
+        private final int argumentIndex;
+
+        /**
+         * Build an assignment.
+         *
+         * @param propertyPath The property path.
+         * @param argumentIndex The index of the method argument with the new value.
+         */
+        Assignment(final String propertyPath, final int argumentIndex) {
+            this.propertyPath = propertyPath;
+            this.argumentIndex = argumentIndex;
+        }
+
+        /**
+         * Get the property path.
+         *
+         * @return The property path.
+         */
+        public String getPropertyPath() {
+            return propertyPath;
+        }
+
+        /**
+         * Get the index of the method argument with the new value.
+         *
+         * @return The argument index.
+         */
+        public int getArgumentIndex() {
+            return argumentIndex;
+        }
+    }
+
+    /**
+     * Transforms each selected row in an Object[], even when a single
+     * property is selected.
+     */
+    private static final class ArrayResultTransformer implements ResultTransformer {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param tuple {@inheritDoc}
+         * @param aliases {@inheritDoc}
+         * @return {@inheritDoc}
+         */
+        @Override
+        public Object transformTuple(final Object[] tuple, final String[] aliases) {
+            return tuple;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param collection {@inheritDoc}
+         * @return {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings("rawtypes")
+        public List transformList(final List collection) {
+            return collection;
+        }
+    }
+
+    /**
+     * Collects the values of a plan during its analysis.
+     */
+    private static final class Builder {
+
+        /** The method. */
+        private final Method method;
+        /** The entity type of the DAO. */
+        private final Class<?> entityType;
+        /** The class of the DAO implementation, null if there isn't one. */
+        private final Class<?> daoClass;
+        /** The kind of the query. */
+        private QueryKind queryKind = QueryKind.OTHER;
+        /** The name of the named query. */
+        private final String queryName;
+        /** true if the session factory defines the named query. */
+        private boolean namedQuery;
+        /** The role of each parameter. */
+        private ParameterRole[] parameterRoles;
+        /** The name of each named parameter. */
+        private String[] namedParameters;
+        /** For each parameter, true if it's an array or a collection. */
+        private boolean[] listParameters;
+        /** The annotations of each parameter. */
+        private Annotation[][] parameterAnnotations;
+        /** The index of the FirstResult parameter. */
+        private int firstResultIndex = -1;
+        /** The index of the MaxResults parameter. */
+        private int maxResultsIndex = -1;
+        /** The conditions. */
+        private final List<Condition> conditions = new ArrayList<Condition>();
+        /** The orderings. */
+        private final List<Ordering> orderings = new ArrayList<Ordering>();
+        /** The assignments. */
+        private final List<Assignment> assignments = new ArrayList<Assignment>();
+        /** The index of the next argument to bind to the method name properties. */
+        private int nextArgumentIndex;
+        /** The shape of the result. */
+        private final ResultType resultType;
+        /** How the elements of the result are built. */
+        private ProjectionKind projectionKind = ProjectionKind.NONE;
+        /** The paths of the selected properties. */
+        private String[] projection;
+        /** The transformer of the selected rows. */
+        private ResultTransformer resultTransformer;
+        /** true if the query results must be cached. */
+        private final boolean cacheable;
+        /** true if a Page result must be read without counting the rows. */
+        private final boolean skipCount;
+        /** The read-only annotation of the method or of its DAO interface, null if none. */
+        private final ReadOnly readOnly;
+        /** The JDBC fetch size. */
+        private Integer fetchSize;
+        /** The query timeout. */
+        private Integer timeout;
+        /** The flush mode. */
+        private org.hibernate.FlushMode flushMode;
+        /** The paths of the associations fetched by a join. */
+        private final List<String> joinFetches = new ArrayList<String>();
+        /** true if a collection is fetched by a join. */
+        private boolean fetchingCollections;
+        /** The HQL queries fetching the associations after the query. */
+        private final List<String> subselectFetchQueries = new ArrayList<String>();
+        /** The parse error. */
+        private String parseError;
+        /** The HQL query. */
+        private String hql;
+        /** The HQL count query. */
+        private String countHql;
+
+        /**
+         * Get the shape of the result from the return type of the method.
+         *
+         * @param returnType The return type of the method.
+         * @return The shape of the result.
+         */
+        private static ResultType resultTypeOf(final Class<?> returnType) {
+            if (List.class.isAssignableFrom(returnType)) {
+                return ResultType.LIST;
+            }
+            if (Page.class.equals(returnType)) {
+                return ResultType.PAGE;
+            }
+            if (Cursor.class.equals(returnType) || Iterator.class.equals(returnType)
+                    || Iterable.class.equals(returnType)) {
+                return ResultType.CURSOR;
+            }
+            return ResultType.SINGLE;
+        }
+
+        /**
+         * Build the builder.
+         *
+         * @param entityType The entity type of the DAO.
+         * @param method The method.
+         * @param daoClass The class of the DAO implementation, null if there isn't one.
+         */
+        Builder(final Class<?> entityType, final Method method, final Class<?> daoClass) {
+            this.method = method;
+            this.entityType = entityType;
+            this.daoClass = daoClass;
+            this.queryName = entityType.getSimpleName() + "." + method.getName();
+            this.resultType = resultTypeOf(method.getReturnType());
+            this.cacheable = method.isAnnotationPresent(CacheIt.class);
+            this.skipCount = method.isAnnotationPresent(SkipCount.class);
+            this.readOnly = annotation(ReadOnly.class);
+            FetchSize fetchSizeAnnotation = annotation(FetchSize.class);
+            if (fetchSizeAnnotation != null) {
+                this.fetchSize = Integer.valueOf(fetchSizeAnnotation.value());
+            }
+            QueryTimeout timeoutAnnotation = annotation(QueryTimeout.class);
+            if (timeoutAnnotation != null) {
+                this.timeout = Integer.valueOf(timeoutAnnotation.value());
+            }
+            org.lambico.dao.generic.FlushMode flushModeAnnotation =
+                    annotation(org.lambico.dao.generic.FlushMode.class);
+            if (flushModeAnnotation != null) {
+                this.flushMode = org.hibernate.FlushMode.parse(flushModeAnnotation.value().name());
+            }
+            int count = method.getParameterTypes().length;
+            this.parameterRoles = new ParameterRole[count];
+            this.namedParameters = new String[count];
+            this.listParameters = new boolean[count];
+        }
+
+        /**
+         * Get an annotation of the method, or of its DAO interface.
+         *
+         * @param <A> The annotation type.
+         * @param annotationType The annotation class.
+         * @return The annotation of the method, or of its declaring interface
+         *         if the method is not annotated. null if none is annotated.
+         */
+        private <A extends Annotation> A annotation(final Class<A> annotationType) {
+            A annotation = method.getAnnotation(annotationType);
+            if (annotation == null) {
+                annotation = method.getDeclaringClass().getAnnotation(annotationType);
+            }
+            return annotation;
+        }
+
+        /**
+         * Analyze the types and the annotations of the method parameters.
+         */
+        void analyzeParameters() {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            parameterAnnotations = method.getParameterAnnotations();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterRoles[i] = ParameterRole.QUERY;
+                listParameters[i] = parameterTypes[i].isArray()
+                        || Collection.class.isAssignableFrom(parameterTypes[i]);
+                for (Annotation annotation : parameterAnnotations[i]) {
+                    boolean intParameter = int.class.equals(parameterTypes[i])
+                            || Integer.class.equals(parameterTypes[i]);
+                    if (annotation instanceof FirstResult && intParameter) {
+                        parameterRoles[i] = ParameterRole.FIRST_RESULT;
+                    } else if (annotation instanceof MaxResults && intParameter) {
+                        parameterRoles[i] = ParameterRole.MAX_RESULTS;
+                    } else if (annotation instanceof NamedParameter) {
+                        namedParameters[i] = ((NamedParameter) annotation).value();
+                    }
+                }
+                if (parameterRoles[i] == ParameterRole.FIRST_RESULT && firstResultIndex < 0) {
+                    firstResultIndex = i;
+                } else if (parameterRoles[i] == ParameterRole.MAX_RESULTS
+                        && maxResultsIndex < 0) {
+                    maxResultsIndex = i;
+                }
+            }
+        }
+
+        /**
+         * Check if the session factory defines the named query for the method.
+         *
+         * @param sessionFactory The session factory.
+         */
+        void resolveNamedQuery(final SessionFactory sessionFactory) {
+            SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+            namedQuery = factory.getNamedQuery(queryName) != null
+                    || factory.getNamedSQLQuery(queryName) != null;
+        }
+
+        /**
+         * Analyze the method name, extracting the conditions and the orderings.
+         */
+        void analyzeName() {
+            final String methodName = method.getName();
+            if (methodName.startsWith(FIND_BY_PREFIX)) {
+                queryKind = QueryKind.FIND;
+                int orderByIdx = methodName.indexOf(ORDER_BY_SEPARATOR);
+                if (orderByIdx == -1) {
+                    // no orderBy
+                    addConditions(methodName.substring(FIND_BY_PREFIX.length()));
+                } else {
+                    if (orderByIdx - 1 > FIND_BY_PREFIX.length()) {
+                        addConditions(methodName.substring(FIND_BY_PREFIX.length(), orderByIdx));
+                    }
+                    for (String oPar : AND_SEPARATOR.split(methodName.substring(
+                            orderByIdx + ORDER_BY_SEPARATOR.length()))) {
+                        addOrdering(oPar);
+                    }
+                }
+            } else if (methodName.startsWith(COUNT_BY_PREFIX)) {
+                queryKind = QueryKind.COUNT;
+                addConditions(methodName.substring(COUNT_BY_PREFIX.length()));
+            } else if (methodName.startsWith(EXISTS_BY_PREFIX)) {
+                queryKind = QueryKind.EXISTS;
+                addConditions(methodName.substring(EXISTS_BY_PREFIX.length()));
+            } else if (isImplemented()) {
+                // the implementation provides the method, whatever its name
+                return;
+            } else if (methodName.startsWith(DELETE_BY_PREFIX)) {
+                queryKind = QueryKind.DELETE;
+                addConditions(methodName.substring(DELETE_BY_PREFIX.length()));
+            } else if (methodName.startsWith(UPDATE_PREFIX)) {
+                int byIdx = methodName.indexOf(BY_SEPARATOR, UPDATE_PREFIX.length());
+                if (byIdx > UPDATE_PREFIX.length()) {
+                    queryKind = QueryKind.UPDATE;
+                    addAssignments(methodName.substring(UPDATE_PREFIX.length(), byIdx));
+                    addConditions(methodName.substring(byIdx + BY_SEPARATOR.length()));
+                }
+            }
+        }
+
+        /**
+         * Check if the DAO implementation provides the method, implementing the
+         * interface declaring it.
+         *
+         * @return true if the method is implemented.
+         */
+        private boolean isImplemented() {
+            return daoClass != null && method.getDeclaringClass().isAssignableFrom(daoClass);
+        }
+
+        /**
+         * Analyze the type of the elements of the result, for finding the
+         * properties to select when it's not the entity type.
+         *
+         * A named query already selects the shape of its results, so its
+         * results are never transformed.
+         */
+        void analyzeProjection() {
+            Class<?> elementType = elementType();
+            if (queryKind != QueryKind.FIND || namedQuery || parseError != null
+                    || elementType == null
+                    || elementType.isAssignableFrom(entityType)
+                    || entityType.isAssignableFrom(elementType)) {
+                return;
+            }
+            Projection annotation = method.getAnnotation(Projection.class);
+            if (annotation != null) {
+                projection = annotation.value();
+            }
+            if (Object[].class.equals(elementType)) {
+                projectionKind = ProjectionKind.ARRAY;
+                resultTransformer = new ArrayResultTransformer();
+            } else if (isScalar(elementType)) {
+                projectionKind = ProjectionKind.SCALAR;
+                if (projection != null && projection.length != 1) {
+                    parseError = "The method " + method
+                            + " returns a scalar type, so it must select a single property";
+                }
+            } else if (projection != null) {
+                projectionKind = ProjectionKind.CONSTRUCTOR;
+                Constructor<?> constructor = findConstructor(elementType);
+                if (constructor == null) {
+                    parseError = "No constructor of " + elementType.getName()
+                            + " matches the properties selected by " + method;
+                } else {
+                    resultTransformer = new AliasToBeanConstructorResultTransformer(constructor);
+                }
+            } else {
+                projectionKind = ProjectionKind.BEAN;
+                projection = beanProperties(elementType);
+                if (projection.length == 0) {
+                    parseError = "No writable property of " + elementType.getName()
+                            + " is a property of " + entityType.getName();
+                }
+                resultTransformer = Transformers.aliasToBean(elementType);
+            }
+            if (projection == null && parseError == null) {
+                parseError = "The method " + method + " must declare the selected properties"
+                        + " with the @Projection annotation";
+            }
+        }
+
+        /**
+         * Analyze the {@link Fetch} annotation, for the finders returning entities.
+         *
+         * The JOIN of a collection is switched to the SUBSELECT mode for the
+         * paginated and the single-result finders, so their limits are still
+         * applied by the database, instead of in memory after loading all the rows.
+         * The cursors can't run a further query on the rows they have still to read,
+         * so they fetch only the to-one associations with the JOIN mode.
+         */
+        void analyzeFetch() {
+            Fetch fetch = method.getAnnotation(Fetch.class);
+            if (queryKind != QueryKind.FIND || projectionKind != ProjectionKind.NONE
+                    || fetch == null) {
+                return;
+            }
+            // joining a collection would apply the limits of the finder in memory
+            final boolean limited = firstResultIndex >= 0 || maxResultsIndex >= 0
+                    || resultType == ResultType.PAGE || resultType == ResultType.SINGLE;
+            for (String path : fetch.value()) {
+                if (resultType == ResultType.CURSOR
+                        && (fetch.mode() == FetchModeType.SUBSELECT || isCollectionPath(path))) {
+                    if (parseError == null) {
+                        parseError = "The method " + method + " returns a cursor, so it can"
+                                + " fetch only the to-one associations with the JOIN mode: "
+                                + path;
+                    }
+                    return;
+                }
+                if (fetch.mode() == FetchModeType.SUBSELECT
+                        || (limited && isCollectionPath(path))) {
+                    subselectFetchQueries.add("select distinct x from " + entityType.getName()
+                            + " x" + fetchJoins(Collections.singletonList(path))
+                            + " where x.id in (:ids)");
+                } else {
+                    joinFetches.add(path);
+                    fetchingCollections |= isCollectionPath(path);
+                }
+            }
+        }
+
+        /**
+         * Build the HQL fragment joining the associations of some paths.
+         *
+         * @param paths The paths of the associations.
+         * @return The HQL fragment, with a join for each association in the paths.
+         */
+        private String fetchJoins(final List<String> paths) {
+            Map<String, String> aliases = new LinkedHashMap<String, String>();
+            StringBuilder joins = new StringBuilder();
+            for (String path : paths) {
+                String parentAlias = "x";
+                String subPath = "";
+                for (String name : StringUtils.delimitedListToStringArray(path, ".")) {
+                    subPath = subPath.length() == 0 ? name : subPath + "." + name;
+                    String alias = aliases.get(subPath);
+                    if (alias == null) {
+                        alias = "f" + aliases.size();
+                        aliases.put(subPath, alias);
+                        joins.append(" left join fetch ").append(parentAlias).append('.').
+                                append(name).append(' ').append(alias);
+                    }
+                    parentAlias = alias;
+                }
+            }
+            return joins.toString();
+        }
+
+        /**
+         * Check if a property path is, or crosses, a collection.
+         *
+         * @param path The property path.
+         * @return true if a property of the path is a collection or a map.
+         */
+        private boolean isCollectionPath(final String path) {
+            Class<?> type = entityType;
+            for (String name : StringUtils.delimitedListToStringArray(path, ".")) {
+                PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, name);
+                if (descriptor == null || descriptor.getReadMethod() == null) {
+                    return false;
+                }
+                type = descriptor.getPropertyType();
+                if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Get the type of the elements of the result.
+         *
+         * @return The element type, null if it can't be resolved.
+         */
+        private Class<?> elementType() {
+            if (resultType == ResultType.SINGLE) {
+                return method.getReturnType();
+            }
+            Type type = method.getGenericReturnType();
+            if (!(type instanceof ParameterizedType)) {
+                return null;
+            }
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (arguments.length != 1) {
+                return null;
+            }
+            if (arguments[0] instanceof Class) {
+                return (Class<?>) arguments[0];
+            }
+            if (arguments[0] instanceof GenericArrayType
+                    && Object.class.equals(
+                    ((GenericArrayType) arguments[0]).getGenericComponentType())) {
+                return Object[].class;
+            }
+            return null;
+        }
+
+        /**
+         * Check if a type is the type of the value of a single property.
+         *
+         * @param type The type.
+         * @return true for primitives, wrappers, strings, numbers, dates and enums.
+         */
+        private boolean isScalar(final Class<?> type) {
+            return ClassUtils.isPrimitiveOrWrapper(type) || CharSequence.class.isAssignableFrom(type)
+                    || Number.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type)
+                    || Calendar.class.isAssignableFrom(type) || type.isEnum();
+        }
+
+        /**
+         * Find the constructor whose parameters match the types of the selected properties.
+         *
+         * @param type The class to build.
+         * @return The constructor, null if none matches.
+         */
+        private Constructor<?> findConstructor(final Class<?> type) {
+            Class<?>[] propertyTypes = new Class<?>[projection.length];
+            for (int i = 0; i < projection.length; i++) {
+                propertyTypes[i] = propertyType(projection[i]);
+            }
+            for (Constructor<?> constructor : type.getConstructors()) {
+                Class<?>[] parameterTypes = constructor.getParameterTypes();
+                if (parameterTypes.length != propertyTypes.length) {
+                    continue;
+                }
+                boolean matching = true;
+                for (int i = 0; i < parameterTypes.length && matching; i++) {
+                    matching = propertyTypes[i] == null
+                            || ClassUtils.isAssignable(parameterTypes[i], propertyTypes[i]);
+                }
+                if (matching) {
+                    return constructor;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get the type of a property of the entity.
+         *
+         * @param propertyPath The property path.
+         * @return The type, null if it can't be resolved.
+         */
+        private Class<?> propertyType(final String propertyPath) {
+            Class<?> type = entityType;
+            for (String name : StringUtils.delimitedListToStringArray(propertyPath, ".")) {
+                PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, name);
+                if (descriptor == null || descriptor.getPropertyType() == null) {
+                    return null;
+                }
+                type = descriptor.getPropertyType();
+            }
+            return type;
+        }
+
+        /**
+         * Get the writable properties of a class that are readable properties of the entity.
+         *
+         * @param type The class.
+         * @return The names of the properties.
+         */
+        private String[] beanProperties(final Class<?> type) {
+            List<String> names = new ArrayList<String>();
+            for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+                if (descriptor.getWriteMethod() == null) {
+                    continue;
+                }
+                PropertyDescriptor entityDescriptor =
+                        BeanUtils.getPropertyDescriptor(entityType, descriptor.getName());
+                if (entityDescriptor != null && entityDescriptor.getReadMethod() != null) {
+                    names.add(descriptor.getName());
+                }
+            }
+            return names.toArray(new String[names.size()]);
+        }
+
+        /**
+         * Build the HQL query equivalent to the method name.
+         */
+        void buildHql() {
+            if (queryKind == QueryKind.NATIVE || queryKind == QueryKind.OTHER
+                    || parseError != null) {
+                return;
+            }
+            StringBuilder query = new StringBuilder();
+            if (queryKind == QueryKind.UPDATE) {
+                query.append("update ").append(entityType.getName()).append(" x");
+                for (int i = 0; i < assignments.size(); i++) {
+                    query.append(i == 0 ? " set " : ", ").append("x.").
+                            append(assignments.get(i).getPropertyPath()).append(" = ?");
+                }
+            } else {
+                query.append("from ").append(entityType.getName()).append(" x");
+            }
+            final int fromEnd = query.length();
+            final boolean grouped = !conditions.isEmpty()
+                    && conditions.get(conditions.size() - 1).getGroup() > 0;
+            for (int i = 0; i < conditions.size(); i++) {
+                if (i == 0) {
+                    query.append(grouped ? " where (" : " where ");
+                } else if (conditions.get(i).getGroup() != conditions.get(i - 1).getGroup()) {
+                    query.append(") or (");
+                } else {
+                    query.append(" and ");
+                }
+                appendHqlCondition(query, conditions.get(i), i);
+            }
+            if (grouped) {
+                query.append(')');
+            }
+            if (queryKind == QueryKind.DELETE || queryKind == QueryKind.UPDATE) {
+                if (queryKind == QueryKind.DELETE) {
+                    query.insert(0, "delete ");
+                }
+                hql = query.toString();
+                return;
+            }
+            countHql = "select count(*) " + query;
+            if (!joinFetches.isEmpty()) {
+                query.insert(fromEnd, fetchJoins(joinFetches));
+            }
+            if (fetchingCollections) {
+                query.insert(0, "select distinct x ");
+            } else if (queryKind == QueryKind.COUNT) {
+                query.insert(0, "select count(*) ");
+            } else if (queryKind == QueryKind.EXISTS) {
+                query.insert(0, "select x.id ");
+            } else if (projection != null) {
+                StringBuilder select = new StringBuilder("select ");
+                for (int i = 0; i < projection.length; i++) {
+                    select.append(i == 0 ? "" : ", ").append("x.").append(projection[i]);
+                    if (projectionKind == ProjectionKind.BEAN) {
+                        select.append(" as ").append(projection[i]);
+                    }
+                }
+                query.insert(0, select.append(' '));
+            }
+            for (int i = 0; i < orderings.size(); i++) {
+                Ordering ordering = orderings.get(i);
+                query.append(i == 0 ? " order by " : ", ").append("x.").
+                        append(ordering.getPropertyPath()).
+                        append(ordering.isAscending() ? " asc" : " desc");
+            }
+            hql = query.toString();
+        }
+
+        /**
+         * Append the HQL fragment of a condition. The IN conditions use the named
+         * parameter {@link #listParameterName(int)}, the others positional parameters.
+         *
+         * @param query The query where to append the condition.
+         * @param condition The condition.
+         * @param index The index of the condition.
+         */
+        private void appendHqlCondition(final StringBuilder query, final Condition condition,
+                final int index) {
+            String property = "x." + condition.getPropertyPath();
+            switch (condition.getCompareType()) {
+                case IN:
+                    query.append(property).append(" in (:").
+                            append(listParameterName(index)).append(')');
+                    break;
+                case BETWEEN:
+                    query.append(property).append(" between ? and ?");
+                    break;
+                case IS_NULL:
+                    query.append(property).append(" is null");
+                    break;
+                case IS_NOT_NULL:
+                    query.append(property).append(" is not null");
+                    break;
+                case LIKE:
+                    query.append(property).append(" like ?");
+                    break;
+                case ILIKE:
+                    query.append("lower(").append(property).append(") like ?");
+                    break;
+                case GE:
+                    query.append(property).append(" >= ?");
+                    break;
+                case GT:
+                    query.append(property).append(" > ?");
+                    break;
+                case LE:
+                    query.append(property).append(" <= ?");
+                    break;
+                case LT:
+                    query.append(property).append(" < ?");
+                    break;
+                case NE:
+                    query.append(property).append(" <> ?");
+                    break;
+                case EQUAL:
+                default:
+                    query.append(property).append(" = ?");
+            }
+        }
+
+        /**
+         * Add the conditions for the properties in a fragment of the method name.
+         *
+         * @param fragment The fragment of the method name with the properties.
+         */
+        private void addConditions(final String fragment) {
+            if (fragment.length() == 0 || parseError != null) {
+                return;
+            }
+            String[] groups = OR_SEPARATOR.split(fragment);
+            for (int group = 0; group < groups.length; group++) {
+                for (String parameter : AND_SEPARATOR.split(groups[group])) {
+                    if (!addCondition(parameter, group)) {
+                        conditions.clear();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add the condition for a property of the method name, consuming the
+         * query parameters it needs.
+         *
+         * @param parameter The property, with its optional IsNull/IsNotNull suffix.
+         * @param group The group of the condition.
+         * @return false (setting the parse error) if there are not enough query parameters.
+         */
+        private boolean addCondition(final String parameter, final int group) {
+            if (parameter.endsWith(IS_NOT_NULL_SUFFIX)) {
+                conditions.add(new Condition(StringUtils.uncapitalize(parameter.substring(0,
+                        parameter.length() - IS_NOT_NULL_SUFFIX.length())),
+                        CompareType.IS_NOT_NULL, -1, -1, group));
+                return true;
+            }
+            if (parameter.endsWith(IS_NULL_SUFFIX)) {
+                conditions.add(new Condition(StringUtils.uncapitalize(parameter.substring(0,
+                        parameter.length() - IS_NULL_SUFFIX.length())),
+                        CompareType.IS_NULL, -1, -1, group));
+                return true;
+            }
+            int argIndex = nextArgument(parameter);
+            if (argIndex < 0) {
+                return false;
+            }
+            CompareType compareType = getCompareType(parameterAnnotations[argIndex]);
+            if (compareType == CompareType.EQUAL && listParameters[argIndex]) {
+                // an array or a collection is compared by inclusion
+                compareType = CompareType.IN;
+            }
+            int upperArgIndex = -1;
+            if (compareType == CompareType.BETWEEN) {
+                upperArgIndex = nextArgument(parameter);
+                if (upperArgIndex < 0) {
+                    return false;
+                }
+            }
+            conditions.add(new Condition(StringUtils.uncapitalize(parameter), compareType,
+                    argIndex, upperArgIndex, group));
+            return true;
+        }
+
+        /**
+         * Add the ordering for a property of the OrderBy part of the method name.
+         *
+         * @param parameter The property, with its optional Asc/Desc suffix.
+         */
+        private void addOrdering(final String parameter) {
+            if (parameter.endsWith(DESC_SUFFIX)) {
+                orderings.add(new Ordering(StringUtils.uncapitalize(parameter.substring(0,
+                        parameter.length() - DESC_SUFFIX.length())), false));
+            } else if (parameter.endsWith(ASC_SUFFIX)) {
+                orderings.add(new Ordering(StringUtils.uncapitalize(parameter.substring(0,
+                        parameter.length() - ASC_SUFFIX.length())), true));
+            } else {
+                orderings.add(new Ordering(StringUtils.uncapitalize(parameter), true));
+            }
+        }
+
+        /**
+         * Add the assignments for the properties in a fragment of the method name.
+         *
+         * @param fragment The fragment of the method name with the updated properties.
+         */
+        private void addAssignments(final String fragment) {
+            for (String parameter : AND_SEPARATOR.split(fragment)) {
+                int argIndex = nextArgument(parameter);
+                if (argIndex < 0) {
+                    assignments.clear();
+                    return;
+                }
+                assignments.add(new Assignment(StringUtils.uncapitalize(parameter), argIndex));
+            }
+        }
+
+        /**
+         * Get the next query parameter, to bind to a property of the method name.
+         *
+         * @param property The property in the method name.
+         * @return The index of the parameter, -1 (setting the parse error) if there are
+         *         no more query parameters.
+         */
+        private int nextArgument(final String property) {
+            while (nextArgumentIndex < parameterRoles.length
+                    && parameterRoles[nextArgumentIndex] != ParameterRole.QUERY) {
+                // skip not query parameters
+                nextArgumentIndex++;
+            }
+            if (nextArgumentIndex >= parameterRoles.length) {
+                parseError = "Not enough query parameters in " + method
+                        + " for the property " + StringUtils.uncapitalize(property);
+                return -1;
+            }
+            return nextArgumentIndex++;
+        }
+
+        /**
+         * Get the type of comparison from the {@link Compare} annotation.
+         *
+         * @param annotations The set of annotations where to search.
+         * @return The type of comparison. EQUAL if the annotation is not present.
+         */
+        private CompareType getCompareType(final Annotation[] annotations) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Compare) {
+                    return ((Compare) annotation).value();
+                }
+            }
+            return CompareType.EQUAL;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
+import net.sf.cglib.proxy.Dispatcher;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.MethodProxy;
+import org.hibernate.SessionFactory;
+import org.lambico.dao.GeneratedDao;
+import org.lambico.dao.generic.GenericDao;
+import org.lambico.dao.spring.hibernate.GenericDaoHibernateSupport;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * A factory of a DAO implemented by a class generated with CGLIB.
+ *
+ * The generated class implements the DAO interface and the interfaces of the
+ * generic DAO. The methods of the generic DAO are dispatched directly to it,
+ * while each query method is bound to its plan when the DAO is created, and
+ * executed by the {@link HibernateDaoInstrumentation}, without any proxy,
+ * pointcut matching or plan lookup at the invocation.
+ *
+ * The exceptions of the methods of the generic DAO are not processed by the
+ * {@link org.lambico.dao.DaoExceptionManager} of the instrumentation.
+ *
+ * @version $Revision$
+ */
+public class GeneratedDaoFactoryBean implements FactoryBean<Object>, InitializingBean {
+
+    /** The DAO interface, null for a DAO without interface. */
+    private Class<?> daoInterface;
+    /** The generic DAO implementing the DAO. */
+    private GenericDao target;
+    /** The instrumentation executing the query methods. */
+    private HibernateDaoInstrumentation hibernateDaoInstrumentation;
+    /** The generated DAO. */
+    private Object dao;
+
+    /**
+     * Set the DAO interface.
+     *
+     * @param daoInterface The DAO interface, null for a DAO without interface.
+     */
+    public void setDaoInterface(final Class<?> daoInterface) {
+        this.daoInterface = daoInterface;
+    }
+
+    /**
+     * Set the generic DAO implementing the DAO.
+     *
+     * @param target The generic DAO.
+     */
+    public void setTarget(final GenericDao target) {
+        this.target = target;
+    }
+
+    /**
+     * Get the generic DAO implementing the DAO.
+     *
+     * @return The generic DAO.
+     */
+    GenericDao getTarget() {
+        return target;
+    }
+
+    /**
+     * Set the instrumentation executing the query methods.
+     *
+     * @param hibernateDaoInstrumentation The instrumentation.
+     */
+    public void setHibernateDaoInstrumentation(
+            final HibernateDaoInstrumentation hibernateDaoInstrumentation) {
+        this.hibernateDaoInstrumentation = hibernateDaoInstrumentation;
+    }
+
+    /**
+     * Generate the DAO class, and create the DAO.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        final SessionFactory sessionFactory =
+                ((GenericDaoHibernateSupport) target).getHibernateTemplate().getSessionFactory();
+        List<Class<?>> interfaces = new ArrayList<Class<?>>();
+        if (daoInterface != null) {
+            interfaces.add(daoInterface);
+        }
+        interfaces.addAll(Arrays.asList(target.getClass().getInterfaces()));
+        interfaces.add(GeneratedDao.class);
+        // callback 0 dispatches to the generic DAO, the others execute a query
+        final List<Callback> callbacks = new ArrayList<Callback>();
+        callbacks.add(new TargetDispatcher(target));
+        final Map<Method, Integer> queryCallbacks = new HashMap<Method, Integer>();
+        for (Class<?> iface : interfaces) {
+            for (Method method : iface.getMethods()) {
+                boolean implemented = method.getDeclaringClass().isInstance(target);
+                FinderPlan plan = hibernateDaoInstrumentation.getFinderPlan(target.getType(),
+                        method, sessionFactory, target.getClass());
+                if (plan.getQueryKind() != FinderPlan.QueryKind.NATIVE
+                        && HibernateDaoInstrumentation.isQuery(plan)) {
+                    if (!queryCallbacks.containsKey(method)) {
+                        queryCallbacks.put(method, Integer.valueOf(callbacks.size()));
+                        callbacks.add(new QueryInterceptor(hibernateDaoInstrumentation, plan));
+                    }
+                } else if (!implemented) {
+                    throw new BeanInitializationException("The method " + method
+                            + " isn't implemented by " + target.getClass().getName()
+                            + ", and it can't be executed as a query");
+                }
+            }
+        }
+        Enhancer enhancer = new Enhancer();
+        enhancer.setClassLoader(interfaces.get(0).getClassLoader());
+        enhancer.setInterfaces(interfaces.toArray(new Class<?>[interfaces.size()]));
+        enhancer.setCallbackFilter(new CallbackFilter() {
+
+            @Override
+            public int accept(final Method method) {
+                Integer index = queryCallbacks.get(method);
+                return index != null ? index.intValue() : 0;
+            }
+        });
+        enhancer.setCallbacks(callbacks.toArray(new Callback[callbacks.size()]));
+        enhancer.setUseFactory(false);
+        dao = enhancer.create();
+        // the DAO interface configuration is applied to the template of the generic DAO
+        HibernateDaoUtils.getHibernateTemplate((GenericDaoHibernateSupport) dao);
+    }
+
+    /**
+     * Get the generated DAO.
+     *
+     * @return The DAO.
+     */
+    @Override
+    public Object getObject() {
+        return dao;
+    }
+
+    /**
+     * Get the type of the generated DAO.
+     *
+     * @return The generated class, or the DAO interface if it isn't generated yet.
+     */
+    @Override
+    public Class<?> getObjectType() {
+        return dao != null ? dao.getClass() : daoInterface;
+    }
+
+    /**
+     * The generated DAO is a singleton.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+    /**
+     * The callback dispatching a method to the generic DAO. The generated class
+     * invokes the method directly on the object returned by the dispatcher.
+     */
+    private static final class TargetDispatcher implements Dispatcher {
+
+        /** The generic DAO. */
+        private final Object target;
+
+        /**
+         * Build the dispatcher.
+         *
+         * @param target The generic DAO.
+         */
+        TargetDispatcher(final Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object loadObject() {
+            return target;
+        }
+    }
+
+    /**
+     * The callback executing the query of a method.
+     */
+    private static final class QueryInterceptor implements MethodInterceptor {
+
+        /** The instrumentation executing the query. */
+        private final HibernateDaoInstrumentation instrumentation;
+        /** The plan of the method. */
+        private final FinderPlan plan;
+
+        /**
+         * Build the interceptor.
+         *
+         * @param instrumentation The instrumentation executing the query.
+         * @param plan The plan of the method.
+         */
+        QueryInterceptor(final HibernateDaoInstrumentation instrumentation,
+                final FinderPlan plan) {
+            this.instrumentation = instrumentation;
+            this.plan = plan;
+        }
+
+        @Override
+        public Object intercept(final Object dao, final Method method, final Object[] args,
+                final MethodProxy methodProxy) {
+            return instrumentation.executeQuery((GenericDao) dao, plan, args);
+        }
+    }
+}
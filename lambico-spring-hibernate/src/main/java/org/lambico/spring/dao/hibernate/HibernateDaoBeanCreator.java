@@ -131,9 +131,7 @@ public class HibernateDaoBeanCreator implements DaoBeanCreator {
      */
     private Class<?>[] extractDaoInterfaces(final String genericDaoName, final Class daoInterface)
             throws ClassNotFoundException {
-        BeanDefinition baseDaoBD = registry.getBeanDefinition(genericDaoName);
-        Class<?>[] genericDaoInterfaces =
-                Class.forName(baseDaoBD.getBeanClassName()).getInterfaces();
+        Class<?>[] genericDaoInterfaces = getGenericDaoClass(genericDaoName).getInterfaces();
         List<Class<?>> newGenericDaoInterfaces =
                 new ArrayList<Class<?>>(genericDaoInterfaces.length + 2);
         newGenericDaoInterfaces.addAll(Arrays.asList(genericDaoInterfaces));
@@ -147,7 +145,8 @@ public class HibernateDaoBeanCreator implements DaoBeanCreator {
     /**
      * Retrieve the list of persistent classes.
      *
-     * It search classes in the provided package, in the DAO interface definitions,
+     * It search classes in the provided package (or in the index of the persistent classes,
+     * if it's in the classpath), in the DAO interface definitions,
      * and in other possibly places in the Spring context (i.e. in the Hibernate session factory).
      *
      * @param entityPackageName The base package of the entity classes.
@@ -157,10 +156,8 @@ public class HibernateDaoBeanCreator implements DaoBeanCreator {
      */
     Set<Class> getPersistentClasses(final String entityPackageName,
             final String sessionFactoryName, final Set<Class> daoInterfaces) {
-        final List<Class> classes = ContextUtils.getAllClasses(rl, readerContext,
-                entityPackageName);
-        final List<Class> annotatedClasses = ContextUtils.getClassesByAnnotation(classes,
-                Entity.class);
+        final List<Class> annotatedClasses = ContextUtils.getClassesByAnnotation(rl,
+                readerContext, entityPackageName, Entity.class, ContextUtils.ENTITIES_INDEX);
         List<Class> classesFromHibernateSessionFactory =
                 searchInTheHibernateSessionFactory(sessionFactoryName);
         List<Class> classesFromTheDaoDefinitions = searchInTheDaoDefinitions(daoInterfaces);
@@ -206,13 +203,15 @@ public class HibernateDaoBeanCreator implements DaoBeanCreator {
     /**
      * Retrieves the set of DAO interfaces.
      *
+     * The DAO interfaces are read from the index, if it's in the classpath,
+     * otherwise the package is scanned.
+     *
      * @param interfacePackageName The base package of the DAO interfaces.
      * @return The filtered list
      */
     Set<Class> getDaoInterfaces(final String interfacePackageName) {
-        final List<Class> allClasses = ContextUtils.getAllClasses(rl, readerContext,
-                interfacePackageName);
-        final List<Class> daoClasses = ContextUtils.getClassesByAnnotation(allClasses, Dao.class);
+        final List<Class> daoClasses = ContextUtils.getClassesByAnnotation(rl, readerContext,
+                interfacePackageName, Dao.class, ContextUtils.DAOS_INDEX);
         return new HashSet<Class>(daoClasses);
     }
 
@@ -250,15 +249,58 @@ public class HibernateDaoBeanCreator implements DaoBeanCreator {
             // don't register a generic DAO (without daoInterface) if it already exists.
             return;
         }
+        registry.registerBeanDefinition(id,
+                buildBeanDefinition(persistentClass, daoInterface, genericDaoName));
+    }
+
+    /**
+     * Build the DAO bean definition for a persistent class: a proxy of the
+     * generic DAO, implementing the DAO interface through the
+     * {@link HibernateDaoInstrumentation} aspect.
+     *
+     * @param persistentClass The type of the DAO.
+     * @param daoInterface The DAO interface, null for a DAO without interface.
+     * @param genericDaoName The parent DAO name.
+     * @return The bean definition.
+     * @throws ClassNotFoundException If the class of the base abstract generic DAO can't be found.
+     */
+    protected BeanDefinition buildBeanDefinition(final Class persistentClass,
+            final Class daoInterface, final String genericDaoName)
+            throws ClassNotFoundException {
         BeanDefinitionBuilder beanDefinitionBuilder =
                 BeanDefinitionBuilder.rootBeanDefinition(ProxyFactoryBean.class);
-        BeanDefinitionBuilder genericDaoBDB =
-                BeanDefinitionBuilder.childBeanDefinition(genericDaoName);
         Class<?>[] genericDaoInterfaces = extractDaoInterfaces(genericDaoName, daoInterface);
         beanDefinitionBuilder.addPropertyValue("proxyInterfaces", genericDaoInterfaces);
+        beanDefinitionBuilder.addPropertyValue("target",
+                buildTargetDefinition(persistentClass, genericDaoName));
+        return beanDefinitionBuilder.getBeanDefinition();
+    }
+
+    /**
+     * Build the definition of the generic DAO implementing a DAO.
+     *
+     * @param persistentClass The type of the DAO.
+     * @param genericDaoName The parent DAO name.
+     * @return The bean definition.
+     */
+    protected BeanDefinition buildTargetDefinition(final Class persistentClass,
+            final String genericDaoName) {
+        BeanDefinitionBuilder genericDaoBDB =
+                BeanDefinitionBuilder.childBeanDefinition(genericDaoName);
         genericDaoBDB.addPropertyValue("type", persistentClass);
-        beanDefinitionBuilder.addPropertyValue("target", genericDaoBDB.getBeanDefinition());
-        registry.registerBeanDefinition(id, beanDefinitionBuilder.getBeanDefinition());
+        return genericDaoBDB.getBeanDefinition();
+    }
+
+    /**
+     * Get the class of the base abstract generic DAO.
+     *
+     * @param genericDaoName The name of the bean defining the base abstract generic DAO.
+     * @return The class of the generic DAO.
+     * @throws ClassNotFoundException If the class of the base abstract generic DAO can't be found.
+     */
+    protected Class<?> getGenericDaoClass(final String genericDaoName)
+            throws ClassNotFoundException {
+        return Class.forName(registry.getBeanDefinition(genericDaoName).getBeanClassName());
     }
 
     /**
@@ -17,38 +17,52 @@
  */
 package org.lambico.spring.dao.hibernate;
 
-import java.lang.annotation.Annotation;
+import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.hibernate.Criteria;
-import org.hibernate.MappingException;
+import org.hibernate.FetchMode;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Conjunction;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.lambico.dao.BypassingExceptionManager;
 import org.lambico.dao.DaoExceptionManager;
-import org.lambico.dao.generic.CacheIt;
-import org.lambico.dao.generic.Compare;
 import org.lambico.dao.generic.CompareType;
-import org.lambico.dao.generic.FirstResult;
+import org.lambico.dao.generic.Cursor;
 import org.lambico.dao.generic.GenericDao;
-import org.lambico.dao.generic.GenericDaoTypeSupport;
-import org.lambico.dao.generic.MaxResults;
-import org.lambico.dao.generic.NamedParameter;
+import org.lambico.dao.generic.Page;
+import org.lambico.dao.generic.PageDefaultImpl;
+import org.lambico.dao.generic.PageUncountedImpl;
+import org.lambico.dao.generic.SkipCount;
 import org.lambico.dao.spring.hibernate.GenericDaoHibernateSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.HibernateTemplate;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ObjectUtils;
 
 /**
  * An aspect for instrumenting a class with dao interfaces and methods.
@@ -60,14 +74,30 @@ import org.springframework.util.StringUtils;
 public class HibernateDaoInstrumentation {
 
     private static Logger logger = LoggerFactory.getLogger(HibernateDaoInstrumentation.class);
-    /** Length of the "findBy"prefix. */
-    private static final int FIND_BY_PREFIX_SIZE = "findBy".length();
-    /** Length of the "orderBy" prefix. */
-    private static final int ORDER_BY_PREFIX_SIZE = "orderBy".length();
-    /** Length of the "orderBy" prefix. */
-    private static final int COUNT_BY_PREFIX_SIZE = "countBy".length();
+    /** The default JDBC fetch size of the cursor queries. */
+    public static final int DEFAULT_CURSOR_FETCH_SIZE = 100;
+    /** The default number of entities returned by a cursor before evicting them. */
+    public static final int DEFAULT_CURSOR_EVICTION_INTERVAL = 100;
     /** The exception manager. */
     private DaoExceptionManager daoExceptionManager = new BypassingExceptionManager();
+    /** If true, the method-name queries are executed as HQL queries, instead of criteria. */
+    private boolean hqlFinders;
+    /** If true, a single-result method fails when the query matches more than one row. */
+    private boolean strictSingleResult;
+    /** The JDBC fetch size of the queries of the methods returning a cursor. */
+    private int cursorFetchSize = DEFAULT_CURSOR_FETCH_SIZE;
+    /** The number of entities returned by a cursor before evicting them from the session. */
+    private int cursorEvictionInterval = DEFAULT_CURSOR_EVICTION_INTERVAL;
+    /** The plans of the DAO methods, by entity type, class of the DAO implementation and method. */
+    private final ConcurrentMap<PlanKey, FinderPlan> finderPlans =
+            new ConcurrentHashMap<PlanKey, FinderPlan>();
+    /**
+     * The last plan executed for each method, with the class of its DAO. As the
+     * methods of a DAO interface are usually executed only by a DAO, a repeated
+     * invocation finds its plan here.
+     */
+    private final ConcurrentMap<Method, ExecutedPlan> executedPlans =
+            new ConcurrentHashMap<Method, ExecutedPlan>();
 
     /**
      * Set the daoException manager.
@@ -78,9 +108,79 @@ public class HibernateDaoInstrumentation {
         this.daoExceptionManager = daoExceptionManager;
     }
 
+    /**
+     * Set the execution mode of the method-name queries (findBy..., countBy...).
+     *
+     * In HQL mode each method is translated only once to an HQL query with
+     * positional parameters, so Hibernate can reuse its query plan,
+     * and every invocation only binds the parameters. Otherwise (the default) a
+     * new criteria is built at each invocation.
+     *
+     * @param hqlFinders true for executing the method-name queries as HQL queries.
+     */
+    public void setHqlFinders(final boolean hqlFinders) {
+        this.hqlFinders = hqlFinders;
+    }
+
+    /**
+     * Get the execution mode of the method-name queries.
+     *
+     * @return true if the method-name queries are executed as HQL queries.
+     */
+    public boolean isHqlFinders() {
+        return hqlFinders;
+    }
+
+    /**
+     * Set the policy for the methods returning a single result, instead of a List.
+     *
+     * The query of such methods never fetches more rows than the ones needed.
+     * If not strict (the default), only the first row is fetched and returned.
+     * If strict, at most two rows are fetched, and an
+     * {@link IncorrectResultSizeDataAccessException} is thrown if the query
+     * matches more than one row.
+     *
+     * @param strictSingleResult true for failing when a single-result query matches
+     * more than one row.
+     */
+    public void setStrictSingleResult(final boolean strictSingleResult) {
+        this.strictSingleResult = strictSingleResult;
+    }
+
+    /**
+     * Set the JDBC fetch size of the queries of the methods returning a
+     * {@link Cursor}, an Iterator or an Iterable.
+     *
+     * @param cursorFetchSize The fetch size. Default is {@value #DEFAULT_CURSOR_FETCH_SIZE}.
+     */
+    public void setCursorFetchSize(final int cursorFetchSize) {
+        this.cursorFetchSize = cursorFetchSize;
+    }
+
+    /**
+     * Set the number of entities returned by a cursor that are kept in the session.
+     *
+     * When the cursor has returned so many entities, all the entities loaded since
+     * the cursor has been opened (including their associations and the entities
+     * loaded by the caller while iterating) are evicted from the session, so the
+     * memory used by the session doesn't grow while the cursor is iterated.
+     *
+     * @param cursorEvictionInterval The number of entities, 0 for never evicting them.
+     * Default is {@value #DEFAULT_CURSOR_EVICTION_INTERVAL}.
+     */
+    public void setCursorEvictionInterval(final int cursorEvictionInterval) {
+        this.cursorEvictionInterval = cursorEvictionInterval;
+    }
+
     /**
      * Executes a finder method in the instrumented class.
      *
+     * The deleteBy... and update...By... methods are executed as a single bulk
+     * HQL statement, returning the number of affected rows, unless the DAO
+     * implementation provides them. Bulk statements bypass the session, so the
+     * entities already loaded in it aren't updated or removed, and no cascade
+     * is applied.
+     *
      * @param pjp The joint point.
      * @return The result of the execution of the finder method.
      * @throws Throwable In case of error.
@@ -90,468 +190,839 @@ public class HibernateDaoInstrumentation {
         Object result = null;
         final GenericDao target = (GenericDao) pjp.getTarget();
         final Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        final FinderPlan plan = getFinderPlan(target, method);
         final Object[] args = pjp.getArgs();
-        final Class<?>[] parameterTypes = method.getParameterTypes();
-        final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-        final StringBuilder errorMessages = new StringBuilder();
-        final Integer firstResult = getFirstResultValue(args, parameterTypes, parameterAnnotations);
-        final Integer maxResults = getMaxResultsValue(args, parameterTypes, parameterAnnotations);
 
-        if (HibernateDaoUtils.isAKnownNativeMethod(method)) {
+        if (plan.getQueryKind() == FinderPlan.QueryKind.NATIVE) {
             result = pjp.proceed(args);
+        } else if (isQuery(plan)) {
+            result = executeQuery(target, plan, args);
         } else {
+            // Call an instance method
+            if (logger.isDebugEnabled()) {
+                logger.debug("target: " + target);
+                logger.debug("method: " + method);
+                logger.debug("args: " + args);
+            }
+            // the DAO interface configuration is applied also to the instance methods
+            HibernateDaoUtils.getHibernateTemplate((GenericDaoHibernateSupport) target);
+            try {
+                result = pjp.proceed(args);
+            } catch (Throwable throwable) {
+                daoExceptionManager.process(throwable, method.getName(), target.getClass().
+                        getName());
+            }
+            result = singleResult(plan, result, false);
+        }
+        return result;
+    }
+
+    /**
+     * Check if a DAO method is executed as a query.
+     *
+     * @param plan The plan of the method.
+     * @return true if the method is executed by
+     *         {@link #executeQuery(GenericDao, FinderPlan, Object[])}, false if
+     *         it's a method of the DAO implementation.
+     */
+    static boolean isQuery(final FinderPlan plan) {
+        return plan.isNamedQuery() || plan.isBulkUpdate() || plan.isMethodNameQuery();
+    }
+
+    /**
+     * Check if the query of a DAO method is executed as the HQL query of its plan.
+     *
+     * @param plan The plan of the method.
+     * @param hqlFinders The execution mode of the method-name queries.
+     * @return true for the bulk statements and the method-name queries executed
+     *         in HQL, false for the named queries and the criteria.
+     */
+    static boolean isHqlQuery(final FinderPlan plan, final boolean hqlFinders) {
+        return !plan.isNamedQuery() && (plan.isBulkUpdate() || (plan.isMethodNameQuery()
+                && (hqlFinders || plan.isFetchingCollections())));
+    }
+
+    /**
+     * Execute the query of a DAO method (see {@link #isQuery(FinderPlan)}).
+     *
+     * @param target The DAO, implementing the DAO interface.
+     * @param plan The plan of the method.
+     * @param args The arguments of the invocation.
+     * @return The result of the method.
+     */
+    Object executeQuery(final GenericDao target, final FinderPlan plan, final Object[] args) {
+        Object result = null;
+        if (logger.isDebugEnabled()) {
             logger.debug("target: " + target);
-            logger.debug("method: " + method);
+            logger.debug("method: " + plan.getMethod());
             logger.debug("args: " + args);
+        }
+        final Integer firstResult = plan.getFirstResult(args);
+        final Integer maxResults = fetchLimit(plan, plan.getMaxResults(args));
 
-            HibernateTemplate hibernateTemplate = HibernateDaoUtils.getHibernateTemplate(
-                    ((GenericDaoHibernateSupport) target));
+        HibernateTemplate hibernateTemplate = HibernateDaoUtils.getHibernateTemplate(
+                ((GenericDaoHibernateSupport) target));
 
+        if (plan.getResultType() == FinderPlan.ResultType.PAGE && plan.isNamedQuery()
+                && !plan.isSkipCount()) {
+            throw new InvalidDataAccessApiUsageException("The rows of the named query "
+                    + plan.getQueryName() + " can't be counted for returning a Page."
+                    + " Annotate the method with @SkipCount.");
+        }
+        if (plan.isNamedQuery()) {
             // query using a named query from the method name
-            result = hibernateTemplate.executeFind(new HibernateCallback() {
+            result = hibernateTemplate.execute(new HibernateCallback<Object>() {
 
                 @Override
                 public Object doInHibernate(final Session session) {
-                    String queryName = queryNameFromMethod(target, method);
-                    Query namedQuery = null;
-                    try {
-                        namedQuery = session.getNamedQuery(queryName);
-                    } catch (MappingException e) {
-                        // No such named query
-                        logger.debug("Named query not found: " + queryName);
-                    }
-                    if (namedQuery != null) {
-                        int j = 0;
-                        for (int i = 0; i < args.length; i++) {
-                            if (isQueryParameter(i, parameterTypes, parameterAnnotations)) {
-                                Object arg = args[i];
-                                if (isNamedParameter(i, parameterAnnotations)) {
-                                    if (isArrayParameter(i, parameterTypes)) {
-                                        namedQuery.setParameterList(getNamedParameterName(i,
-                                                parameterAnnotations), (Object[]) arg);
-                                    } else if (isCollectionParameter(i, parameterTypes)) {
-                                        namedQuery.setParameterList(getNamedParameterName(i,
-                                                parameterAnnotations), (Collection) arg);
-                                    } else {
-                                        namedQuery.setParameter(
-                                                getNamedParameterName(
-                                                i, parameterAnnotations), arg);
-                                    }
-                                } else {
-                                    namedQuery.setParameter(j, arg);
-                                    j++;
-                                }
-                            }
-                        }
-                        if (firstResult != null) {
-                            namedQuery.setFirstResult(firstResult.intValue());
-                        }
-                        if (maxResults != null && maxResults.intValue() >= 0) {
-                            namedQuery.setMaxResults(maxResults.intValue());
-                        }
-                        namedQuery.setCacheable(method.isAnnotationPresent(CacheIt.class));
-                        return namedQuery.list();
-                    } else {
-                        errorMessages.append("Named query not found: ").
-                                append(queryName).append(". ");
+                    Query namedQuery = session.getNamedQuery(plan.getQueryName());
+                    bindNamedQueryParameters(namedQuery, plan, args);
+                    applyOptions(namedQuery, plan);
+                    if (plan.isBulkUpdate()) {
+                        return Integer.valueOf(namedQuery.executeUpdate());
                     }
-                    return null;
+                    setLimits(namedQuery, firstResult, maxResults);
+                    namedQuery.setCacheable(plan.isCacheable());
+                    return results(session, namedQuery, plan);
                 }
             });
-            if (result == null) {
-                // No named query found
-                if (method.getName().startsWith("findBy")
-                        || method.getName().startsWith("countBy")) {
-                    // Query evicting condition from the method name
-                    result = hibernateTemplate.executeFind(
-                            new HibernateCallback() {
-
-                                @Override
-                                public Object doInHibernate(final Session session) {
-                                    DetachedCriteria criteria =
-                                            criteriaFromMethod(target, method, args);
-                                    Criteria executableCriteria =
-                                            criteria.getExecutableCriteria(session);
-                                    if (firstResult != null) {
-                                        executableCriteria.setFirstResult(firstResult.intValue());
-                                    }
-                                    if (maxResults != null && maxResults.intValue() >= 0) {
-                                        executableCriteria.setMaxResults(maxResults.intValue());
-                                    }
-                                    final Criteria crit = criteria.getExecutableCriteria(session);
-                                    crit.setCacheable(method.isAnnotationPresent(CacheIt.class));
-                                    return crit.list();
-                                }
-                            });
-                } else {
-                    // Call an instance method
-                    try {
-                        result = pjp.proceed(args);
-                    } catch (Throwable throwable) {
-                        daoExceptionManager.process(throwable, method.getName(), target.getClass().
-                                getName());
-                    }
+        } else if (plan.isBulkUpdate()) {
+            // Bulk statement from the method name, always in HQL
+            result = hibernateTemplate.execute(new HibernateCallback<Object>() {
+
+                @Override
+                public Object doInHibernate(final Session session) {
+                    Query query = queryFromPlan(session, plan, plan.getHql(), args);
+                    applyOptions(query, plan);
+                    return Integer.valueOf(query.executeUpdate());
                 }
-            }
-            if (result != null && List.class.isAssignableFrom(result.getClass())
-                    && !List.class.isAssignableFrom(method.getReturnType())) {
-                // The return type is not a List, so I return the first result
-                // of the list, or null if the list is empty
-                List listResult = (List) result;
-                if (!listResult.isEmpty()) {
-                    result = listResult.get(0);
-                } else {
-                    result = null;
+            });
+        } else if (isHqlQuery(plan, hqlFinders)) {
+            // Query evicting condition from the method name, translated to HQL
+            // (always when joining collections, for returning distinct entities)
+            result = hibernateTemplate.execute(new HibernateCallback<Object>() {
+
+                @Override
+                public Object doInHibernate(final Session session) {
+                    Query query = queryFromPlan(session, plan, plan.getHql(), args);
+                    setLimits(query, firstResult, maxResults);
+                    query.setCacheable(plan.isCacheable());
+                    return results(session, query, plan);
                 }
+            });
+        } else if (plan.isMethodNameQuery()) {
+            // Query evicting condition from the method name
+            result = hibernateTemplate.execute(
+                    new HibernateCallback<Object>() {
+
+                        @Override
+                        public Object doInHibernate(final Session session) {
+                            Criteria criteria = criteriaFromPlan(plan, args,
+                                    plan.getQueryKind() == FinderPlan.QueryKind.COUNT).
+                                    getExecutableCriteria(session);
+                            setLimits(criteria, firstResult, maxResults);
+                            criteria.setCacheable(plan.isCacheable());
+                            return results(session, criteria, plan);
+                        }
+                    });
+        }
+        if (plan.isBulkUpdate()) {
+            result = updatedRows(plan.getMethod().getReturnType(), (Integer) result);
+        }
+        if (plan.getQueryKind() == FinderPlan.QueryKind.EXISTS) {
+            // The existence check fetches at most the id of a row
+            result = Boolean.valueOf(!((List) result).isEmpty());
+        }
+        if (plan.getResultType() == FinderPlan.ResultType.PAGE) {
+            result = page(plan, args, (List) result, hibernateTemplate);
+        }
+        return singleResult(plan, result, strictSingleResult);
+    }
+
+    /**
+     * Convert the result of a method not returning a List.
+     *
+     * @param plan The plan of the method.
+     * @param result The result of the query or of the DAO implementation.
+     * @param strict true for failing if the result contains more than one element.
+     * @return The first element of the result, or null if it's empty, when the
+     *         method returns a single result, otherwise the result itself.
+     */
+    private Object singleResult(final FinderPlan plan, final Object result,
+            final boolean strict) {
+        if (result != null && plan.getResultType() == FinderPlan.ResultType.SINGLE
+                && result instanceof List) {
+            // The return type is not a List, so I return the first result
+            // of the list, or null if the list is empty
+            List listResult = (List) result;
+            if (strict && listResult.size() > 1) {
+                throw new IncorrectResultSizeDataAccessException(1, listResult.size());
             }
+            return listResult.isEmpty() ? null : listResult.get(0);
         }
         return result;
     }
 
     /**
-     * Extracts the named query name from the method signature.
+     * Get the plan of a DAO method, building it at the first request.
+     *
+     * The existence of the named query of the method is resolved only at that time,
+     * so the following invocations never look for a missing named query.
      *
-     * At present the name is:
+     * @param entityType The entity type of the DAO.
+     * @param method The method.
+     * @param sessionFactory The session factory of the DAO.
+     * @return The plan of the method.
+     */
+    FinderPlan getFinderPlan(final Class<?> entityType, final Method method,
+            final SessionFactory sessionFactory) {
+        return getFinderPlan(entityType, method, sessionFactory, null);
+    }
+
+    /**
+     * Get the plan of a method of a DAO implemented by a class, building it at
+     * the first request (see {@link FinderPlan#build(Class, Method, SessionFactory, Class)}).
      *
-     * &lt;DAO entity type simple name&gt;.&lt;method name&gt;
+     * @param entityType The entity type of the DAO.
+     * @param method The method.
+     * @param sessionFactory The session factory of the DAO.
+     * @param daoClass The class of the DAO implementation, null if there isn't one.
+     * @return The plan of the method.
+     */
+    FinderPlan getFinderPlan(final Class<?> entityType, final Method method,
+            final SessionFactory sessionFactory, final Class<?> daoClass) {
+        PlanKey key = new PlanKey(entityType, daoClass, method);
+        FinderPlan plan = finderPlans.get(key);
+        if (plan == null) {
+            plan = FinderPlan.build(entityType, method, sessionFactory, daoClass);
+            FinderPlan previous = finderPlans.putIfAbsent(key, plan);
+            if (previous != null) {
+                plan = previous;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Get the plan of a method executed on a DAO. A repeated invocation only
+     * reads the plan of the method, without resolving the class and the
+     * session factory of the DAO.
      *
      * @param target The DAO.
-     * @param finderMethod The method.
-     * @return The named query name.
+     * @param method The method.
+     * @return The plan of the method.
      */
-    private String queryNameFromMethod(final GenericDao target, final Method finderMethod) {
-        return target.getType().getSimpleName() + "." + finderMethod.getName();
+    private FinderPlan getFinderPlan(final GenericDao target, final Method method) {
+        ExecutedPlan executedPlan = executedPlans.get(method);
+        if (executedPlan != null && executedPlan.targetClass == target.getClass()
+                && executedPlan.plan.getEntityType() == target.getType()) {
+            return executedPlan.plan;
+        }
+        FinderPlan plan = getFinderPlan(target.getType(), method,
+                ((GenericDaoHibernateSupport) target).getHibernateTemplate().getSessionFactory(),
+                AopUtils.getTargetClass(target));
+        executedPlans.put(method, new ExecutedPlan(target.getClass(), plan));
+        return plan;
     }
 
     /**
-     * Create a criteria for selection using the method signature.
+     * Bind the arguments of the method to the parameters of a named query.
      *
-     * @param target The DAO.
-     * @param finderMethod The method.
-     * @param args The arguments to pass to the criteria.
-     * @return The criteria.
+     * @param namedQuery The named query.
+     * @param plan The plan of the method.
+     * @param args The arguments of the invocation.
      */
-    private DetachedCriteria criteriaFromMethod(final GenericDao target, final Method finderMethod,
+    private void bindNamedQueryParameters(final Query namedQuery, final FinderPlan plan,
             final Object[] args) {
-        final String methodName = finderMethod.getName();
-        if (methodName.startsWith("findBy")) {
-            return selectionCriteriaFromMethod(target, finderMethod, args);
-        }
-        if (methodName.startsWith("countBy")) {
-            return countCriteriaFromMethod(target, finderMethod, args);
+        int j = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (plan.isQueryParameter(i)) {
+                Object arg = args[i];
+                String parameterName = plan.getNamedParameter(i);
+                if (parameterName != null) {
+                    if (plan.isListParameter(i) && arg instanceof Object[]) {
+                        namedQuery.setParameterList(parameterName,
+                                nonEmpty(Arrays.asList((Object[]) arg)));
+                    } else if (plan.isListParameter(i) && arg instanceof Collection) {
+                        namedQuery.setParameterList(parameterName, nonEmpty((Collection) arg));
+                    } else {
+                        namedQuery.setParameter(parameterName, arg);
+                    }
+                } else {
+                    namedQuery.setParameter(j, arg);
+                    j++;
+                }
+            }
         }
-        return null;
     }
 
     /**
-     * Create a criteria for selection using the method signature.
+     * Create a criteria binding the arguments of the invocation to the plan of the method.
      *
-     * @param target The DAO.
-     * @param finderMethod The method.
-     * @param args The arguments to pass to the criteria.
+     * @param plan The plan of the method.
+     * @param args The arguments of the invocation.
+     * @param count true for counting the rows, instead of selecting them.
      * @return The criteria.
      */
-    private DetachedCriteria selectionCriteriaFromMethod(final GenericDao target,
-            final Method finderMethod, final Object[] args) {
-        Class<?>[] parameterTypes = finderMethod.getParameterTypes();
-        Annotation[][] parameterAnnotations = finderMethod.getParameterAnnotations();
-        DetachedCriteria criteria =
-                DetachedCriteria.forClass(((GenericDaoTypeSupport) target).getType());
-        final String methodName = finderMethod.getName();
-        int orderByIdx = methodName.indexOf("OrderBy");
-        String[] parameters = null;
-        String[] orderParameters = null;
-        if (orderByIdx == -1) {
-            // no orderBy
-            parameters = methodName.substring(FIND_BY_PREFIX_SIZE).split("And");
-        } else {
-            if (orderByIdx - 1 > FIND_BY_PREFIX_SIZE) {
-                parameters = methodName.substring(FIND_BY_PREFIX_SIZE, orderByIdx).split("And");
+    private DetachedCriteria criteriaFromPlan(final FinderPlan plan, final Object[] args,
+            final boolean count) {
+        if (plan.getParseError() != null) {
+            throw new InvalidDataAccessApiUsageException(plan.getParseError());
+        }
+        DetachedCriteria criteria = DetachedCriteria.forClass(plan.getEntityType());
+        if (count) {
+            criteria.setProjection(Projections.rowCount());
+        } else if (plan.getQueryKind() == FinderPlan.QueryKind.EXISTS) {
+            criteria.setProjection(Projections.id());
+        } else if (plan.getProjectionKind() != FinderPlan.ProjectionKind.NONE) {
+            ProjectionList projections = Projections.projectionList();
+            for (String property : plan.getProjectionPaths()) {
+                projections.add(plan.getProjectionKind() == FinderPlan.ProjectionKind.BEAN
+                        ? Projections.property(property).as(property)
+                        : Projections.property(property));
+            }
+            criteria.setProjection(projections);
+        }
+        Disjunction groups = plan.getConditionGroups() > 1 ? Restrictions.disjunction() : null;
+        Conjunction group = null;
+        int groupIndex = -1;
+        for (FinderPlan.Condition condition : plan.getConditions()) {
+            Criterion comparison = comparison(condition, args);
+            if (groups == null) {
+                criteria.add(comparison);
+            } else {
+                if (condition.getGroup() != groupIndex) {
+                    group = Restrictions.conjunction();
+                    groups.add(group);
+                    groupIndex = condition.getGroup();
+                }
+                group.add(comparison);
             }
-            orderParameters = methodName.substring(orderByIdx + ORDER_BY_PREFIX_SIZE).split("And");
         }
-        if (parameters != null) {
-            mergeParametersInCriteria(criteria, parameters, parameterTypes, parameterAnnotations,
-                    args);
+        if (groups != null) {
+            criteria.add(groups);
         }
-        if (orderParameters != null) {
-            for (String oPar : orderParameters) {
-                criteria.addOrder(Order.asc(StringUtils.uncapitalize(oPar)));
+        if (!count) {
+            for (String path : plan.getJoinFetches()) {
+                criteria.setFetchMode(path, FetchMode.JOIN);
+            }
+            for (FinderPlan.Ordering ordering : plan.getOrderings()) {
+                criteria.addOrder(ordering.isAscending() ? Order.asc(ordering.getPropertyPath())
+                        : Order.desc(ordering.getPropertyPath()));
             }
         }
         return criteria;
     }
 
     /**
-     * Create a criteria for counting using the method signature.
+     * Build the page returned by a method, from the rows selected for it.
      *
-     * @param target The DAO.
-     * @param finderMethod The method.
-     * @param args The arguments to pass to the criteria.
-     * @return The criteria.
+     * If the method is annotated with {@link SkipCount}, the rows has been
+     * selected with one more row, for knowing if there is a next page.
+     * Otherwise the rows are counted by a second query.
+     *
+     * @param plan The plan of the method.
+     * @param args The arguments of the invocation.
+     * @param rows The rows selected for the page.
+     * @param hibernateTemplate The template of the DAO.
+     * @return The page.
      */
-    private DetachedCriteria countCriteriaFromMethod(final GenericDao target,
-            final Method finderMethod, final Object[] args) {
-        Class<?>[] parameterTypes = finderMethod.getParameterTypes();
-        Annotation[][] parameterAnnotations = finderMethod.getParameterAnnotations();
-        DetachedCriteria criteria =
-                DetachedCriteria.forClass(((GenericDaoTypeSupport) target).getType());
-        criteria.setProjection(Projections.rowCount());
+    @SuppressWarnings("unchecked")
+    private Page page(final FinderPlan plan, final Object[] args, final List rows,
+            final HibernateTemplate hibernateTemplate) {
+        Integer firstResult = plan.getFirstResult(args);
+        Integer pageSize = plan.getMaxResults(args);
+        if (pageSize == null || pageSize.intValue() <= 0) {
+            // no pagination, all the rows are in the first page
+            return new PageDefaultImpl(rows, 1, Math.max(rows.size(), 1), rows.size());
+        }
+        int first = firstResult != null && firstResult.intValue() > 0 ? firstResult.intValue() : 0;
+        int pageIndex = first / pageSize.intValue() + 1;
+        if (plan.isSkipCount()) {
+            boolean nextPage = rows.size() > pageSize.intValue();
+            List pageRows = nextPage ? new ArrayList(rows.subList(0, pageSize.intValue())) : rows;
+            return new PageUncountedImpl(pageRows, pageIndex, pageSize.intValue(), nextPage);
+        }
+        Number rowCount = hibernateTemplate.execute(new HibernateCallback<Number>() {
+
+            @Override
+            public Number doInHibernate(final Session session) {
+                if (hqlFinders) {
+                    Query query = queryFromPlan(session, plan, plan.getCountHql(), args);
+                    query.setCacheable(plan.isCacheable());
+                    applyOptions(query, plan);
+                    return (Number) query.uniqueResult();
+                }
+                Criteria criteria = criteriaFromPlan(plan, args, true).
+                        getExecutableCriteria(session);
+                criteria.setCacheable(plan.isCacheable());
+                applyOptions(criteria, plan);
+                return (Number) criteria.uniqueResult();
+            }
+        });
+        return new PageDefaultImpl(rows, pageIndex, pageSize.intValue(), rowCount.intValue());
+    }
 
-        final String methodName = finderMethod.getName();
-        String[] parameters = methodName.substring(COUNT_BY_PREFIX_SIZE).split("And");
-        if (parameters != null) {
-            mergeParametersInCriteria(criteria, parameters, parameterTypes, parameterAnnotations,
-                    args);
+    /**
+     * Convert the number of rows affected by a bulk statement to the return type of the method.
+     *
+     * @param returnType The return type of the method.
+     * @param rows The number of affected rows.
+     * @return The number of rows as a Long for long methods, null for void methods,
+     *         otherwise as an Integer.
+     */
+    private Object updatedRows(final Class<?> returnType, final Integer rows) {
+        if (long.class.equals(returnType) || Long.class.equals(returnType)) {
+            return Long.valueOf(rows.longValue());
         }
-        return criteria;
+        if (void.class.equals(returnType)) {
+            return null;
+        }
+        return rows;
     }
 
     /**
-     * Check if a parameter is for the FirstResult value for the query.
+     * Get the results of a query, in the shape requested by the method.
      *
-     * @param parameterIndex index of the parameter as declared in the method
-     * @param parameterTypes types of parameters of the method
-     * @param parameterAnnotations annotations of parameters of the method
-     * @return true if the parameter is for the FirstResult value
+     * @param session The Hibernate session.
+     * @param query The query.
+     * @param plan The plan of the method.
+     * @return A cursor on the results, or the list of the results.
      */
-    private boolean isFirstResultParameter(final int parameterIndex,
-            final Class<?>[] parameterTypes, final Annotation[][] parameterAnnotations) {
-        boolean result = false;
-        for (Annotation annotation : parameterAnnotations[parameterIndex]) {
-            if (annotation instanceof FirstResult
-                    && int.class.isAssignableFrom(parameterTypes[parameterIndex])) {
-                result = true;
-                break;
-            }
+    private Object results(final Session session, final Query query, final FinderPlan plan) {
+        if (plan.isReadOnly()) {
+            query.setReadOnly(true);
         }
-        return result;
+        applyOptions(query, plan);
+        if (plan.getResultType() == FinderPlan.ResultType.CURSOR) {
+            checkCursorSession(session);
+            query.setFetchSize(cursorFetchSize(plan));
+            return new ScrollableResultsCursor<Object>(query.scroll(ScrollMode.FORWARD_ONLY),
+                    session, evictionInterval(plan), plan.getResultTransformer(),
+                    plan.getProjectionPaths());
+        }
+        if (plan.getResultTransformer() != null) {
+            query.setResultTransformer(plan.getResultTransformer());
+        }
+        return evictResults(session, fetchAssociations(session, query.list(), plan), plan);
     }
 
     /**
-     * Check if a parameter is a collection.
+     * Get the results of a criteria, in the shape requested by the method.
      *
-     * @param parameterIndex index of the parameter as declared in the method
-     * @param parameterTypes types of parameters of the method
-     * @return true if the parameter is a collection.
+     * @param session The Hibernate session.
+     * @param criteria The criteria.
+     * @param plan The plan of the method.
+     * @return A cursor on the results, or the list of the results.
      */
-    private boolean isCollectionParameter(final int parameterIndex,
-            final Class<?>[] parameterTypes) {
-        boolean result = false;
-        if (Collection.class.isAssignableFrom(
-                parameterTypes[parameterIndex])) {
-            result = true;
+    private Object results(final Session session, final Criteria criteria,
+            final FinderPlan plan) {
+        if (plan.isReadOnly()) {
+            criteria.setReadOnly(true);
         }
-        return result;
+        applyOptions(criteria, plan);
+        if (plan.getResultType() == FinderPlan.ResultType.CURSOR) {
+            checkCursorSession(session);
+            criteria.setFetchSize(cursorFetchSize(plan));
+            return new ScrollableResultsCursor<Object>(
+                    criteria.scroll(ScrollMode.FORWARD_ONLY), session, evictionInterval(plan),
+                    plan.getResultTransformer(), plan.getProjectionPaths());
+        }
+        if (plan.getResultTransformer() != null) {
+            criteria.setResultTransformer(plan.getResultTransformer());
+        }
+        return evictResults(session, fetchAssociations(session, criteria.list(), plan), plan);
     }
 
     /**
-     * Check if a parameter is an array .
+     * Apply to a query the fetch size, the timeout and the flush mode of the method.
      *
-     * @param parameterIndex index of the parameter as declared in the method
-     * @param parameterTypes types of parameters of the method
-     * @return true if the parameter is an array
+     * @param query The query.
+     * @param plan The plan of the method.
      */
-    private boolean isArrayParameter(final int parameterIndex, final Class<?>[] parameterTypes) {
-        boolean result = false;
-        if (parameterTypes[parameterIndex].isArray()) {
-            result = true;
+    private void applyOptions(final Query query, final FinderPlan plan) {
+        if (plan.getFetchSize() != null) {
+            query.setFetchSize(plan.getFetchSize());
+        }
+        if (plan.getTimeout() != null) {
+            query.setTimeout(plan.getTimeout());
+        }
+        if (plan.getFlushMode() != null) {
+            query.setFlushMode(plan.getFlushMode());
         }
-        return result;
     }
 
     /**
-     * Check if a parameter is for the MaxResults value for the query.
+     * Apply to a criteria the fetch size, the timeout and the flush mode of the method.
      *
-     * @param parameterIndex index of the parameter as declared in the method
-     * @param parameterTypes types of parameters of the method
-     * @param parameterAnnotations annotations of parameters of the method
-     * @return true if the parameter is for the MaxResults value
+     * @param criteria The criteria.
+     * @param plan The plan of the method.
      */
-    private boolean isMaxResultsParameter(final int parameterIndex,
-            final Class<?>[] parameterTypes, final Annotation[][] parameterAnnotations) {
-        boolean result = false;
-        for (Annotation annotation : parameterAnnotations[parameterIndex]) {
-            if (annotation instanceof MaxResults
-                    && int.class.isAssignableFrom(parameterTypes[parameterIndex])) {
-                result = true;
-                break;
-            }
+    private void applyOptions(final Criteria criteria, final FinderPlan plan) {
+        if (plan.getFetchSize() != null) {
+            criteria.setFetchSize(plan.getFetchSize());
+        }
+        if (plan.getTimeout() != null) {
+            criteria.setTimeout(plan.getTimeout());
+        }
+        if (plan.getFlushMode() != null) {
+            criteria.setFlushMode(plan.getFlushMode());
         }
-        return result;
     }
 
     /**
-     * Check if a parameter is a parameter for the query.
+     * Get the JDBC fetch size of the query of a cursor.
      *
-     * @param parameterIndex index of the parameter as declared in the method
-     * @param parameterTypes types of parameters of the method
-     * @param parameterAnnotations annotations of parameters of the method
-     * @return true if the parameter is a parameter for the query
+     * @param plan The plan of the method.
+     * @return The fetch size of the method, if any, otherwise the configured cursor fetch size.
      */
-    private boolean isQueryParameter(final int parameterIndex, final Class<?>[] parameterTypes,
-            final Annotation[][] parameterAnnotations) {
-        return !isMaxResultsParameter(parameterIndex, parameterTypes, parameterAnnotations)
-                && !isFirstResultParameter(parameterIndex, parameterTypes, parameterAnnotations);
+    private int cursorFetchSize(final FinderPlan plan) {
+        return plan.getFetchSize() != null ? plan.getFetchSize().intValue() : cursorFetchSize;
     }
 
     /**
-     * Check if a parameter is a named parameter for the query.
+     * Get the number of entities returned by a cursor that are kept in the session.
      *
-     * @param parameterIndex index of the parameter as declared in the method
-     * @param parameterAnnotations annotations of parameters of the method
-     * @return true if the parameter is a named parameter for the query
+     * @param plan The plan of the method.
+     * @return 1 if the method evicts the returned entities, otherwise the configured interval.
      */
-    private boolean isNamedParameter(final int parameterIndex,
-            final Annotation[][] parameterAnnotations) {
-        boolean result = false;
-        for (Annotation annotation : parameterAnnotations[parameterIndex]) {
-            if (annotation instanceof NamedParameter) {
-                result = true;
-                break;
+    private int evictionInterval(final FinderPlan plan) {
+        return plan.isEvictResults() ? 1 : cursorEvictionInterval;
+    }
+
+    /**
+     * Fetch the associations of the returned entities with the SUBSELECT mode:
+     * a further query for each association path, loading the associations of
+     * all the entities (in chunks of primary key values).
+     *
+     * @param session The Hibernate session.
+     * @param results The results of the query.
+     * @param plan The plan of the method.
+     * @return The results.
+     */
+    private List fetchAssociations(final Session session, final List results,
+            final FinderPlan plan) {
+        if (plan.getSubselectFetchQueries().isEmpty() || results.isEmpty()) {
+            return results;
+        }
+        List<Serializable> ids = new ArrayList<Serializable>(results.size());
+        for (Object result : results) {
+            if (result != null) {
+                ids.add(session.getIdentifier(result));
             }
         }
-        return result;
+        int chunkSize = HibernateDaoUtils.DEFAULT_ID_CHUNK_SIZE;
+        for (String fetchQuery : plan.getSubselectFetchQueries()) {
+            for (int i = 0; i < ids.size(); i += chunkSize) {
+                Query query = session.createQuery(fetchQuery);
+                query.setParameterList("ids", ids.subList(i, Math.min(ids.size(), i + chunkSize)));
+                if (plan.isReadOnly()) {
+                    query.setReadOnly(true);
+                }
+                applyOptions(query, plan);
+                query.list();
+            }
+        }
+        return results;
     }
 
     /**
-     * Get the name of a named parameter for the query.
+     * Evict the returned entities from the session, if requested by the method.
      *
-     * @param parameterIndex index of the parameter as declared in the method
-     * @param parameterAnnotations annotations of parameters of the method
-     * @return the name of the named parameter for the query. null if it's not a named parameter.
+     * @param session The Hibernate session.
+     * @param results The results of the query.
+     * @param plan The plan of the method.
+     * @return The results.
      */
-    private String getNamedParameterName(final int parameterIndex,
-            final Annotation[][] parameterAnnotations) {
-        String result = null;
-        for (Annotation annotation : parameterAnnotations[parameterIndex]) {
-            if (annotation instanceof NamedParameter) {
-                result = ((NamedParameter) annotation).value();
-                break;
+    private List evictResults(final Session session, final List results, final FinderPlan plan) {
+        if (plan.isEvictResults()) {
+            for (Object result : results) {
+                if (result != null && session.contains(result)) {
+                    session.evict(result);
+                }
             }
         }
-        return result;
+        return results;
     }
 
     /**
-     * Get the value of the parameter marked as @FirstRecord.
+     * Check that the session outlives the execution of the method, as a cursor needs.
      *
-     * @param args parameters values
-     * @param parameterTypes types of parameters of the method
-     * @param parameterAnnotations annotations of parameters of the method
-     * @return The value if it's found. null otherwise.
+     * @param session The Hibernate session.
      */
-    private Integer getFirstResultValue(final Object[] args, final Class<?>[] parameterTypes,
-            final Annotation[][] parameterAnnotations) {
-        Integer result = null;
-        for (int i = 0; i < args.length; i++) {
-            if (isFirstResultParameter(i, parameterTypes, parameterAnnotations)) {
-                result = (Integer) args[i];
-                break;
-            }
+    private void checkCursorSession(final Session session) {
+        if (!TransactionSynchronizationManager.hasResource(session.getSessionFactory())) {
+            throw new InvalidDataAccessApiUsageException(
+                    "A method returning a cursor needs a session bound to the thread,"
+                    + " for example by a transaction.");
         }
-        return result;
     }
 
     /**
-     * Get the value of the parameter marked as @MaxResults.
+     * Get the max number of rows to fetch for an invocation.
      *
-     * @param args parameters values
-     * @param parameterTypes types of parameters of the method
-     * @param parameterAnnotations annotations of parameters of the method
-     * @return The value if it's found. null otherwise.
+     * @param plan The plan of the method.
+     * @param maxResults The max number of results requested by the invocation, null if none.
+     * @return The max number of rows to fetch, null for no limit.
      */
-    private Integer getMaxResultsValue(final Object[] args, final Class<?>[] parameterTypes,
-            final Annotation[][] parameterAnnotations) {
-        Integer result = null;
-        for (int i = 0; i < args.length; i++) {
-            if (isMaxResultsParameter(i, parameterTypes, parameterAnnotations)) {
-                result = (Integer) args[i];
-                break;
-            }
+    private Integer fetchLimit(final FinderPlan plan, final Integer maxResults) {
+        if (plan.getQueryKind() == FinderPlan.QueryKind.EXISTS) {
+            return Integer.valueOf(1);
+        }
+        switch (plan.getResultType()) {
+            case SINGLE:
+                return singleResultLimit(maxResults);
+            case PAGE:
+                if (maxResults == null || maxResults.intValue() <= 0) {
+                    return null;
+                }
+                return plan.isSkipCount() ? Integer.valueOf(maxResults.intValue() + 1)
+                        : maxResults;
+            default:
+                return maxResults;
         }
-        return result;
     }
 
     /**
-     * Compose parameter in criteria.
+     * Get the max number of rows to fetch for a method returning a single result.
      *
-     * @param criteria Criteria to merge into
-     * @param parameters parameters to merge
-     * @param parameterTypes paramaters types
-     * @param parameterAnnotations paramaters annotations
-     * @param values parameter values
+     * @param maxResults The max number of results requested by the invocation, null if none.
+     * @return The max number of rows to fetch.
      */
-    private void mergeParametersInCriteria(final DetachedCriteria criteria,
-            final String[] parameters, final Class<?>[] parameterTypes,
-            final Annotation[][] parameterAnnotations, final Object[] values) {
-        int argIndex = 0;
-        for (String parameter : parameters) {
-            while (!isQueryParameter(argIndex, parameterTypes, parameterAnnotations)) {
-                // skip not query parameters
-                argIndex++;
-            }
-            addComparison(criteria, StringUtils.uncapitalize(parameter), values[argIndex],
-                    parameterAnnotations[argIndex]);
-            argIndex++;
+    private Integer singleResultLimit(final Integer maxResults) {
+        int limit = strictSingleResult ? 2 : 1;
+        if (maxResults != null && maxResults.intValue() >= 0 && maxResults.intValue() < limit) {
+            return maxResults;
         }
+        return Integer.valueOf(limit);
     }
 
     /**
-     * Add a comparison to criteria.
+     * Set the limits of the results of a query, so they are applied by the database.
+     *
+     * @param query The query.
+     * @param firstResult The index of the first result. Ignored if null or negative.
+     * @param maxResults The max number of results. Ignored if null or negative.
+     */
+    private void setLimits(final Query query, final Integer firstResult,
+            final Integer maxResults) {
+        if (firstResult != null && firstResult.intValue() >= 0) {
+            query.setFirstResult(firstResult.intValue());
+        }
+        if (maxResults != null && maxResults.intValue() >= 0) {
+            query.setMaxResults(maxResults.intValue());
+        }
+    }
+
+    /**
+     * Set the limits of the results of a criteria, so they are applied by the database.
      *
      * @param criteria The criteria.
+     * @param firstResult The index of the first result. Ignored if null or negative.
+     * @param maxResults The max number of results. Ignored if null or negative.
+     */
+    private void setLimits(final Criteria criteria, final Integer firstResult,
+            final Integer maxResults) {
+        if (firstResult != null && firstResult.intValue() >= 0) {
+            criteria.setFirstResult(firstResult.intValue());
+        }
+        if (maxResults != null && maxResults.intValue() >= 0) {
+            criteria.setMaxResults(maxResults.intValue());
+        }
+    }
+
+    /**
+     * Create an HQL query binding the arguments of the invocation to the plan of the method.
+     *
+     * @param session The Hibernate session.
+     * @param plan The plan of the method.
+     * @param hql The HQL query of the plan to execute (selection or count).
+     * @param args The arguments of the invocation.
+     * @return The query.
+     */
+    private Query queryFromPlan(final Session session, final FinderPlan plan, final String hql,
+            final Object[] args) {
+        if (plan.getParseError() != null) {
+            throw new InvalidDataAccessApiUsageException(plan.getParseError());
+        }
+        Query query = session.createQuery(hql);
+        int position = 0;
+        for (FinderPlan.Assignment assignment : plan.getAssignments()) {
+            query.setParameter(position++, args[assignment.getArgumentIndex()]);
+        }
+        List<FinderPlan.Condition> conditions = plan.getConditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            FinderPlan.Condition condition = conditions.get(i);
+            switch (condition.getCompareType()) {
+                case IS_NULL:
+                case IS_NOT_NULL:
+                    break;
+                case IN:
+                    query.setParameterList(FinderPlan.listParameterName(i),
+                            listValue(condition, args[condition.getArgumentIndex()]));
+                    break;
+                case BETWEEN:
+                    query.setParameter(position++, args[condition.getArgumentIndex()]);
+                    query.setParameter(position++, args[condition.getUpperArgumentIndex()]);
+                    break;
+                default:
+                    Object value = args[condition.getArgumentIndex()];
+                    if (condition.getCompareType() == CompareType.ILIKE && value != null) {
+                        value = value.toString().toLowerCase();
+                    }
+                    query.setParameter(position++, value);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Build the criterion of a condition.
+     *
+     * @param condition The condition.
+     * @param args The arguments of the invocation.
+     * @return The criterion.
+     */
+    private Criterion comparison(final FinderPlan.Condition condition, final Object[] args) {
+        final String parameter = condition.getPropertyPath();
+        switch (condition.getCompareType()) {
+            case IS_NULL:
+                return Restrictions.isNull(parameter);
+            case IS_NOT_NULL:
+                return Restrictions.isNotNull(parameter);
+            case IN:
+                return Restrictions.in(parameter,
+                        listValue(condition, args[condition.getArgumentIndex()]));
+            case BETWEEN:
+                return Restrictions.between(parameter, args[condition.getArgumentIndex()],
+                        args[condition.getUpperArgumentIndex()]);
+            default:
+                return comparison(parameter, condition.getCompareType(),
+                        args[condition.getArgumentIndex()]);
+        }
+    }
+
+    /**
+     * Get the values of an IN condition.
+     *
+     * @param condition The IN condition.
+     * @param value The argument of the condition: a collection or an array.
+     * @return The values.
+     */
+    private Collection<?> listValue(final FinderPlan.Condition condition, final Object value) {
+        if (value == null) {
+            throw new InvalidDataAccessApiUsageException("Null values for the IN condition on "
+                    + condition.getPropertyPath());
+        }
+        if (value instanceof Collection) {
+            return nonEmpty((Collection<?>) value);
+        }
+        return nonEmpty(Arrays.asList(ObjectUtils.toObjectArray(value)));
+    }
+
+    /**
+     * Get the values bound to an IN list, replacing an empty list (that would
+     * produce the invalid SQL <code>in ()</code>) with a single null value:
+     * <code>in (null)</code> is never true, so it matches no rows, as expected
+     * from an empty list, also inside a disjunction.
+     *
+     * @param values The values of the IN list.
+     * @return The values, or a list with a single null if they are empty.
+     */
+    private static Collection<?> nonEmpty(final Collection<?> values) {
+        if (values.isEmpty()) {
+            return Collections.singletonList(null);
+        }
+        return values;
+    }
+
+    /**
+     * Build a comparison of a property with a value.
+     *
      * @param parameter The parameter name
+     * @param compareType The type of comparison
      * @param value The parameter value to compare
-     * @param annotations The method parameter annotations
+     * @return The criterion.
      */
-    private void addComparison(final DetachedCriteria criteria, final String parameter,
-            final Object value, final Annotation[] annotations) {
-        Compare compareAnnotation = getCompareAnnotation(annotations);
-        CompareType compareType =
-                compareAnnotation != null ? compareAnnotation.value() : CompareType.EQUAL;
+    private Criterion comparison(final String parameter, final CompareType compareType,
+            final Object value) {
         switch (compareType) {
             case LIKE:
-                criteria.add(Restrictions.like(parameter, value));
-                break;
+                return Restrictions.like(parameter, value);
             case ILIKE:
-                criteria.add(Restrictions.ilike(parameter, value));
-                break;
+                return Restrictions.ilike(parameter, value);
             case GE:
-                criteria.add(Restrictions.ge(parameter, value));
-                break;
+                return Restrictions.ge(parameter, value);
             case GT:
-                criteria.add(Restrictions.gt(parameter, value));
-                break;
+                return Restrictions.gt(parameter, value);
             case LE:
-                criteria.add(Restrictions.le(parameter, value));
-                break;
+                return Restrictions.le(parameter, value);
             case LT:
-                criteria.add(Restrictions.lt(parameter, value));
-                break;
+                return Restrictions.lt(parameter, value);
             case NE:
-                criteria.add(Restrictions.ne(parameter, value));
-                break;
+                return Restrictions.ne(parameter, value);
             case EQUAL:
             default:
-                criteria.add(Restrictions.eq(parameter, value));
+                return Restrictions.eq(parameter, value);
         }
     }
 
     /**
-     * Search the {@link Compare} annotation in an array of annotations.
-     *
-     * @param annotations The set of annotations where to search.
-     * @return The {@link Compare} annotation. null, if not found.
+     * A plan executed on a DAO.
      */
-    private Compare getCompareAnnotation(final Annotation[] annotations) {
-        Compare result = null;
-        for (Annotation annotation : annotations) {
-            if (annotation instanceof Compare) {
-                result = (Compare) annotation;
-                break;
+    private static final class ExecutedPlan {
+
+        private final Class<?> targetClass;
+        private final FinderPlan plan;
+
+        /**
+         * The constructor.
+         *
+         * @param targetClass The class of the DAO, as returned by getClass().
+         * @param plan The plan.
+         */
+        ExecutedPlan(final Class<?> targetClass, final FinderPlan plan) {
+            this.targetClass = targetClass;
+            this.plan = plan;
+        }
+    }
+
+    /**
+     * The key of the plan of a DAO method.
+     */
+    private static final class PlanKey {
+
+        private final Class<?> entityType;
+        private final Class<?> daoClass;
+        private final Method method;
+
+        /**
+         * The constructor.
+         *
+         * @param entityType The entity type of the DAO.
+         * @param daoClass The class of the DAO implementation, null if there isn't one.
+         * @param method The method.
+         */
+        PlanKey(final Class<?> entityType, final Class<?> daoClass, final Method method) {
+            this.entityType = entityType;
+            this.daoClass = daoClass;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof PlanKey)) {
+                return false;
             }
+            PlanKey other = (PlanKey) obj;
+            return entityType == other.entityType && daoClass == other.daoClass
+                    && method.equals(other.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * ObjectUtils.nullSafeHashCode(entityType)
+                    + ObjectUtils.nullSafeHashCode(daoClass)) * 31 + method.hashCode();
         }
-        return result;
     }
 }
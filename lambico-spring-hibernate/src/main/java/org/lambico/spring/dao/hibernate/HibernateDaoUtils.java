@@ -17,10 +17,62 @@
  */
 package org.lambico.spring.dao.hibernate;
 
+import java.io.Serializable;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hibernate.Cache;
+import org.hibernate.Criteria;
+import org.hibernate.EntityMode;
+import org.hibernate.FetchMode;
+import org.hibernate.LockMode;
+import org.hibernate.Query;
+import org.hibernate.SQLQuery;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Conjunction;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.CascadeStyle;
+import org.hibernate.engine.CascadingAction;
+import org.hibernate.engine.EntityKey;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.impl.CriteriaImpl;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
 import org.lambico.dao.generic.CacheIt;
+import org.lambico.dao.generic.FetchSize;
+import org.lambico.dao.generic.FlushMode;
+import org.lambico.dao.generic.KeysetPage;
+import org.lambico.dao.generic.KeysetPageDefaultImpl;
+import org.lambico.dao.generic.QueryTimeout;
 import org.lambico.dao.spring.hibernate.GenericDaoHibernateSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.HibernateTemplate;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Utility methods for implementing the Hibernate DAO.
@@ -30,6 +82,68 @@ import org.springframework.orm.hibernate3.HibernateTemplate;
  */
 public final class HibernateDaoUtils {
 
+    /**
+     * The size of the batches of the collection operations, if the session factory
+     * doesn't define a JDBC batch size (hibernate.jdbc.batch_size).
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * The max number of primary key values in a single query of
+     * {@link #getAll(HibernateTemplate, Class, Collection, int)}, if not specified.
+     * It's lower than the limits of the databases on the IN lists and the
+     * number of parameters.
+     */
+    public static final int DEFAULT_ID_CHUNK_SIZE = 500;
+
+    /**
+     * The field of the fetch modes of a criteria, not exposed by the Hibernate API.
+     *
+     * It's resolved at the first copy of a criteria needing it, so a Hibernate
+     * version without the field breaks only the copy of the fetch modes.
+     */
+    private static final class FetchModesField {
+
+        private static final Logger logger = LoggerFactory.getLogger(FetchModesField.class);
+        /** The field, null if it isn't available. */
+        static final Field FIELD = findField();
+
+        private FetchModesField() {
+        }
+
+        /**
+         * Find the field of the fetch modes.
+         *
+         * @return The accessible field, null if it isn't available.
+         */
+        private static Field findField() {
+            try {
+                Field field = ReflectionUtils.findField(CriteriaImpl.class, "fetchModes");
+                if (field != null) {
+                    ReflectionUtils.makeAccessible(field);
+                    return field;
+                }
+            } catch (SecurityException e) {
+                logger.debug("Can't access the fetch modes of the criteria", e);
+            }
+            logger.warn("The fetch modes of the criteria aren't available, so they aren't"
+                    + " copied to the searches paginated by keyset.");
+            return null;
+        }
+    }
+
+    /**
+     * The operations that can be executed in batches on a collection of entities.
+     */
+    enum BatchOperation {
+        /** Persist each entity. */
+        PERSIST,
+        /** Merge each entity. */
+        MERGE,
+        /** Delete each entity. */
+        DELETE
+    }
+
     /**
      * Private default constructor.
      */
@@ -63,6 +177,13 @@ public final class HibernateDaoUtils {
      * Get an {@link HibernateTemplate } template customized with the
      * DAO configuration.
      *
+     * The {@link CacheIt}, {@link FetchSize}, {@link QueryTimeout} and
+     * {@link FlushMode} annotations of the DAO interface are applied to the
+     * template, so they are used also by the methods of the DAO implementation
+     * (findAll, searchByCriteria, exists, count...). The timeout and the flush
+     * mode are applied only by the templates of the lambico DAOs
+     * ({@link HibernateGenericDaoImpl} and {@link HibernateGenericBusinessDao}).
+     *
      * @param genericDao The DAO uset for customization.
      * @return The customized {@link HibernateTemplate}.
      */
@@ -73,9 +194,651 @@ public final class HibernateDaoUtils {
         for (Class<?> iface : interfaces) {
             if (null != iface.getAnnotation(CacheIt.class)) {
                 result.setCacheQueries(true);
-                break;
+            }
+            applyQueryOptions(result, iface);
+        }
+        return result;
+    }
+
+    /**
+     * Apply the {@link FetchSize}, {@link QueryTimeout} and {@link FlushMode}
+     * annotations of a DAO type to a template. The timeout and the flush mode
+     * are applied only to a {@link DaoHibernateTemplate}.
+     *
+     * @param hibernateTemplate The template.
+     * @param daoType The DAO interface or class.
+     */
+    static void applyQueryOptions(final HibernateTemplate hibernateTemplate,
+            final Class<?> daoType) {
+        FetchSize fetchSize = daoType.getAnnotation(FetchSize.class);
+        if (fetchSize != null) {
+            hibernateTemplate.setFetchSize(fetchSize.value());
+        }
+        if (hibernateTemplate instanceof DaoHibernateTemplate) {
+            QueryTimeout queryTimeout = daoType.getAnnotation(QueryTimeout.class);
+            if (queryTimeout != null) {
+                ((DaoHibernateTemplate) hibernateTemplate).setQueryTimeout(queryTimeout.value());
+            }
+            FlushMode flushMode = daoType.getAnnotation(FlushMode.class);
+            if (flushMode != null) {
+                ((DaoHibernateTemplate) hibernateTemplate).setFlushModeType(flushMode.value());
+            }
+        }
+    }
+
+    /**
+     * Search using a criteria with keyset pagination.
+     *
+     * The criteria is neither modified nor serialized: the search is executed on a
+     * new criteria built by {@link #copyCriteria(DetachedCriteria, Session, boolean)},
+     * without its orderings, ordered by the key properties, and restricted to the
+     * rows following the last key. One more row than the page size is fetched,
+     * just for knowing if there is a next page.
+     *
+     * The key properties must never be null: a null can't be compared with the
+     * following keys, and the databases sort it differently. So a null value in
+     * the last key, or in the key of the last row of a page with a following page,
+     * is rejected instead of silently skipping rows or ending the pagination.
+     *
+     * @param <T> The entity class type.
+     * @param hibernateTemplate The template used for the search.
+     * @param type The entity class type.
+     * @param criteria The criteria.
+     * @param lastKey The values of the key properties of the last row already read,
+     *                null for reading the first page.
+     * @param pageSize The page width.
+     * @param keyProperties The key properties. If none, the identifier property is used.
+     * @return The page.
+     * @throws InvalidDataAccessApiUsageException if a value of the key is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> KeysetPage<T> searchKeysetPaginatedByCriteria(
+            final HibernateTemplate hibernateTemplate, final Class<?> type,
+            final DetachedCriteria criteria, final Object[] lastKey, final int pageSize,
+            final String... keyProperties) {
+        if (pageSize <= 0) {
+            throw new InvalidDataAccessApiUsageException("The page size must be positive.");
+        }
+        final String[] keys = keyProperties.length > 0 ? keyProperties
+                : new String[]{getIdentifierPropertyName(hibernateTemplate.getSessionFactory(),
+                    type)};
+        if (lastKey != null && lastKey.length != keys.length) {
+            throw new InvalidDataAccessApiUsageException("The last key has " + lastKey.length
+                    + " values, but the key has " + keys.length + " properties.");
+        }
+        if (lastKey != null) {
+            checkKey(keys, lastKey);
+        }
+        List<T> rows = hibernateTemplate.executeWithNativeSession(new HibernateCallback<List<T>>() {
+
+            @Override
+            public List<T> doInHibernate(final Session session) {
+                Criteria pageCriteria = copyCriteria(criteria, session, true);
+                prepareCriteria(hibernateTemplate, pageCriteria);
+                if (lastKey != null) {
+                    pageCriteria.add(after(keys, lastKey));
+                }
+                for (String key : keys) {
+                    pageCriteria.addOrder(Order.asc(key));
+                }
+                pageCriteria.setMaxResults(pageSize + 1);
+                return pageCriteria.list();
+            }
+        });
+        Object[] nextKey = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<T>(rows.subList(0, pageSize));
+            BeanWrapper lastRow = new BeanWrapperImpl(rows.get(pageSize - 1));
+            nextKey = new Object[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                nextKey[i] = lastRow.getPropertyValue(keys[i]);
+            }
+            checkKey(keys, nextKey);
+        }
+        return new KeysetPageDefaultImpl<T>(rows, nextKey);
+    }
+
+    /**
+     * Check that the values of a key of the keyset pagination aren't null.
+     *
+     * @param keys The key properties.
+     * @param values The values of the key.
+     * @throws InvalidDataAccessApiUsageException if a value is null.
+     */
+    private static void checkKey(final String[] keys, final Object[] values) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] == null) {
+                throw new InvalidDataAccessApiUsageException("The key property " + keys[i]
+                        + " is null, but the keyset pagination needs key properties that are"
+                        + " never null.");
+            }
+        }
+    }
+
+    /**
+     * Build the restriction selecting the rows following a key, in the ascending
+     * order of the key properties.
+     *
+     * @param keys The key properties.
+     * @param values The values of the key.
+     * @return The restriction.
+     */
+    private static Criterion after(final String[] keys, final Object[] values) {
+        Disjunction result = Restrictions.disjunction();
+        for (int i = 0; i < keys.length; i++) {
+            Conjunction following = Restrictions.conjunction();
+            for (int j = 0; j < i; j++) {
+                following.add(Restrictions.eq(keys[j], values[j]));
+            }
+            following.add(Restrictions.gt(keys[i], values[i]));
+            result.add(following);
+        }
+        return result;
+    }
+
+    /**
+     * Get the name of the identifier property of an entity.
+     *
+     * @param sessionFactory The session factory mapping the entity.
+     * @param type The entity class type.
+     * @return The name of the identifier property.
+     */
+    private static String getIdentifierPropertyName(final SessionFactory sessionFactory,
+            final Class<?> type) {
+        ClassMetadata metadata = sessionFactory.getClassMetadata(type);
+        if (metadata == null || metadata.getIdentifierPropertyName() == null) {
+            throw new InvalidDataAccessApiUsageException("The entity " + type.getName()
+                    + " hasn't an identifier property, specify the key properties.");
+        }
+        return metadata.getIdentifierPropertyName();
+    }
+
+    /**
+     * Get the size of the batches of the collection operations on a session factory.
+     *
+     * @param sessionFactory The session factory.
+     * @return The JDBC batch size of the session factory (hibernate.jdbc.batch_size),
+     * or {@link #DEFAULT_BATCH_SIZE} if it isn't defined.
+     */
+    public static int getBatchSize(final SessionFactory sessionFactory) {
+        int result = 0;
+        if (sessionFactory instanceof SessionFactoryImplementor) {
+            result = ((SessionFactoryImplementor) sessionFactory).getSettings().
+                    getJdbcBatchSize();
+        }
+        return result > 0 ? result : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Execute an operation on each entity of a collection, flushing the session
+     * at the end of every batch of entities and evicting from it the entities
+     * loaded since the start of the operation.
+     *
+     * The entities that were already in the session are kept, so only the
+     * processed entities (and the ones loaded by processing them) become detached.
+     *
+     * @param hibernateTemplate The template used for the operations.
+     * @param entities The entities.
+     * @param batchSize The size of the batches. If not positive, the batch size
+     *                  of the session factory is used.
+     * @param operation The operation.
+     * @return The number of the processed entities.
+     */
+    static int executeInBatches(final HibernateTemplate hibernateTemplate,
+            final Collection<?> entities, final int batchSize, final BatchOperation operation) {
+        final int size = batchSize > 0 ? batchSize
+                : getBatchSize(hibernateTemplate.getSessionFactory());
+        Integer result = hibernateTemplate.execute(new HibernateCallback<Integer>() {
+
+            @Override
+            public Integer doInHibernate(final Session session) {
+                Set<EntityKey> keptEntities = getEntityKeys(session);
+                int count = 0;
+                for (Object entity : entities) {
+                    switch (operation) {
+                        case PERSIST:
+                            session.persist(entity);
+                            break;
+                        case MERGE:
+                            session.merge(entity);
+                            break;
+                        case DELETE:
+                        default:
+                            session.delete(entity);
+                    }
+                    count++;
+                    if (count % size == 0) {
+                        session.flush();
+                        evictEntities(session, keptEntities);
+                    }
+                }
+                return Integer.valueOf(count);
+            }
+        });
+        return result.intValue();
+    }
+
+    /**
+     * Get the keys of the entities in a session.
+     *
+     * @param session The session.
+     * @return A copy of the keys of the entities in the session.
+     */
+    static Set<EntityKey> getEntityKeys(final Session session) {
+        return new HashSet<EntityKey>(
+                ((SessionImplementor) session).getPersistenceContext().getEntitiesByKey().keySet());
+    }
+
+    /**
+     * Evict from a session all the entities, with their collections, except some.
+     *
+     * @param session The session.
+     * @param keptEntities The keys of the entities kept in the session.
+     */
+    static void evictEntities(final Session session, final Set<EntityKey> keptEntities) {
+        List<Object> evictedEntities = new ArrayList<Object>();
+        for (Object o : ((SessionImplementor) session).getPersistenceContext()
+                .getEntitiesByKey().entrySet()) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            if (!keptEntities.contains(entry.getKey())) {
+                evictedEntities.add(entry.getValue());
+            }
+        }
+        for (Object entity : evictedEntities) {
+            // an entity could be already evicted by the cascade from another one
+            if (session.contains(entity)) {
+                session.evict(entity);
+            }
+        }
+    }
+
+    /**
+     * Delete all the instances of an entity.
+     *
+     * The instances are deleted by a single bulk HQL statement, bypassing the
+     * session: instances already loaded in the session aren't removed from it,
+     * and no cascade or Hibernate event is applied.
+     * If cascade-aware, the entities whose mapping needs such processing (see
+     * {@link #isBulkDeletable(org.hibernate.SessionFactory, java.lang.Class)})
+     * are instead loaded and deleted one by one.
+     *
+     * @param hibernateTemplate The template used for the deletion.
+     * @param type The entity class type.
+     * @param cascadeAware true for falling back to the deletion of each instance
+     *                     when the bulk deletion would ignore some mapping.
+     * @return The count of the deleted instances.
+     */
+    public static int deleteAll(final HibernateTemplate hibernateTemplate, final Class<?> type,
+            final boolean cascadeAware) {
+        if (cascadeAware && !isBulkDeletable(hibernateTemplate.getSessionFactory(), type)) {
+            List<?> rows = hibernateTemplate.find("from " + type.getName() + " x");
+            hibernateTemplate.deleteAll(rows);
+            return rows.size();
+        }
+        return hibernateTemplate.bulkUpdate("delete from " + type.getName());
+    }
+
+    /**
+     * Check if the instances of an entity can be deleted by a bulk statement
+     * without losing any mapped behaviour, i.e. the entity has no cascading delete,
+     * no orphan removal, and no collection (whose rows the bulk statement
+     * wouldn't delete).
+     *
+     * @param sessionFactory The session factory mapping the entity.
+     * @param type The entity class type.
+     * @return true if the entity can be deleted by a bulk statement.
+     */
+    public static boolean isBulkDeletable(final SessionFactory sessionFactory,
+            final Class<?> type) {
+        ClassMetadata metadata = sessionFactory.getClassMetadata(type);
+        if (!(metadata instanceof EntityPersister)) {
+            return false;
+        }
+        EntityPersister persister = (EntityPersister) metadata;
+        for (CascadeStyle cascadeStyle : persister.getPropertyCascadeStyles()) {
+            if (cascadeStyle.doCascade(CascadingAction.DELETE) || cascadeStyle.hasOrphanDelete()) {
+                return false;
+            }
+        }
+        for (Type propertyType : persister.getPropertyTypes()) {
+            if (propertyType.isCollectionType()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build the HQL query counting all the instances of an entity.
+     *
+     * @param type The entity class type.
+     * @return The count query.
+     */
+    public static String buildCountQuery(final Class<?> type) {
+        return "select count(*) from " + type.getName();
+    }
+
+    /**
+     * Execute a count query.
+     *
+     * @param hibernateTemplate The template used for the query.
+     * @param countQuery The HQL count query.
+     * @return The count.
+     */
+    public static long count(final HibernateTemplate hibernateTemplate, final String countQuery) {
+        Number result = hibernateTemplate.executeWithNativeSession(new HibernateCallback<Number>() {
+
+            @Override
+            public Number doInHibernate(final Session session) {
+                Query query = session.createQuery(countQuery);
+                prepareQuery(hibernateTemplate, query);
+                return (Number) query.uniqueResult();
+            }
+        });
+        return result.longValue();
+    }
+
+    /**
+     * Estimate the count of all the instances of an entity.
+     *
+     * The estimate is read by a native SQL query, usually on the statistics of
+     * the database, for example on PostgreSQL:
+     * <code>select reltuples::bigint from pg_class where relname = :table</code>.
+     * The <code>table</code> named parameter, if used, is bound to the name of the
+     * table of the entity.
+     *
+     * @param hibernateTemplate The template used for the queries.
+     * @param type The entity class type.
+     * @param approximateCountQuery The native SQL query returning the estimate.
+     *                              If null, or if it returns no value,
+     *                              the exact count is returned.
+     * @param countQuery The HQL query for the exact count.
+     * @return The estimated count.
+     */
+    public static long estimateCount(final HibernateTemplate hibernateTemplate,
+            final Class<?> type, final String approximateCountQuery, final String countQuery) {
+        if (approximateCountQuery == null) {
+            return count(hibernateTemplate, countQuery);
+        }
+        Number result = hibernateTemplate.executeWithNativeSession(new HibernateCallback<Number>() {
+
+            @Override
+            public Number doInHibernate(final Session session) {
+                SQLQuery query = session.createSQLQuery(approximateCountQuery);
+                prepareQuery(hibernateTemplate, query);
+                if (Arrays.asList(query.getNamedParameters()).contains("table")) {
+                    query.setParameter("table", getTableName(session.getSessionFactory(), type));
+                }
+                return (Number) query.uniqueResult();
+            }
+        });
+        return result != null ? result.longValue() : count(hibernateTemplate, countQuery);
+    }
+
+    /**
+     * Get the name of the table of an entity.
+     *
+     * @param sessionFactory The session factory mapping the entity.
+     * @param type The entity class type.
+     * @return The name of the table.
+     */
+    private static String getTableName(final SessionFactory sessionFactory, final Class<?> type) {
+        ClassMetadata metadata = sessionFactory.getClassMetadata(type);
+        if (!(metadata instanceof AbstractEntityPersister)) {
+            throw new InvalidDataAccessApiUsageException("The table of the entity "
+                    + type.getName() + " is unknown.");
+        }
+        return ((AbstractEntityPersister) metadata).getTableName();
+    }
+
+    /**
+     * Count on the result of a search using a criteria.
+     *
+     * The count is executed on a new criteria, built by
+     * {@link #copyCriteria(DetachedCriteria, Session, boolean)}, with a row count
+     * projection and without the fetch modes. So the criteria is neither copied by
+     * serialization nor modified.
+     *
+     * @param hibernateTemplate The template used for the count.
+     * @param criteria The criteria.
+     * @return The number of instances in the result.
+     */
+    public static long countByCriteria(final HibernateTemplate hibernateTemplate,
+            final DetachedCriteria criteria) {
+        Number result = hibernateTemplate.executeWithNativeSession(new HibernateCallback<Number>() {
+
+            @Override
+            public Number doInHibernate(final Session session) {
+                Criteria countCriteria = copyCriteria(criteria, session, false);
+                countCriteria.setProjection(Projections.rowCount());
+                prepareCriteria(hibernateTemplate, countCriteria);
+                return (Number) countCriteria.uniqueResult();
+            }
+        });
+        return result.longValue();
+    }
+
+    /**
+     * Build a new executable criteria with the same entity, associations, aliases,
+     * restrictions, lock modes and comment of a detached criteria, but without its
+     * orderings.
+     *
+     * The detached criteria isn't modified: the restrictions are shared with the
+     * new criteria, without copying them. The fetch modes are read from a private
+     * field of the Hibernate criteria: if it isn't available, they aren't copied.
+     *
+     * @param criteria The detached criteria.
+     * @param session The session of the new criteria.
+     * @param forRows true for a search of the rows, copying also the fetch modes,
+     *                the projection and the result transformer; false for a count.
+     * @return The new criteria.
+     */
+    static Criteria copyCriteria(final DetachedCriteria criteria, final Session session,
+            final boolean forRows) {
+        CriteriaImpl source = (CriteriaImpl) criteria.getExecutableCriteria(session);
+        CriteriaImpl result = new CriteriaImpl(source.getEntityOrClassName(), source.getAlias(),
+                (SessionImplementor) session);
+        Map<Criteria, Criteria> copies = new IdentityHashMap<Criteria, Criteria>();
+        copies.put(source, result);
+        Iterator<?> subcriteriaList = source.iterateSubcriteria();
+        while (subcriteriaList.hasNext()) {
+            CriteriaImpl.Subcriteria subcriteria =
+                    (CriteriaImpl.Subcriteria) subcriteriaList.next();
+            Criteria copy = copies.get(subcriteria.getParent()).createCriteria(
+                    subcriteria.getPath(), subcriteria.getAlias(), subcriteria.getJoinType(),
+                    subcriteria.getWithClause());
+            if (subcriteria.getLockMode() != null) {
+                copy.setLockMode(subcriteria.getLockMode());
+            }
+            copies.put(subcriteria, copy);
+        }
+        Iterator<?> criterionEntries = source.iterateExpressionEntries();
+        while (criterionEntries.hasNext()) {
+            CriteriaImpl.CriterionEntry entry =
+                    (CriteriaImpl.CriterionEntry) criterionEntries.next();
+            result.add(copies.get(entry.getCriteria()), entry.getCriterion());
+        }
+        for (Map.Entry<?, ?> lockMode : ((Map<?, ?>) source.getLockModes()).entrySet()) {
+            result.setLockMode((String) lockMode.getKey(), (LockMode) lockMode.getValue());
+        }
+        if (forRows) {
+            if (FetchModesField.FIELD != null) {
+                Map<?, ?> fetchModes =
+                        (Map<?, ?>) ReflectionUtils.getField(FetchModesField.FIELD, source);
+                for (Map.Entry<?, ?> fetchMode : fetchModes.entrySet()) {
+                    result.setFetchMode((String) fetchMode.getKey(),
+                            (FetchMode) fetchMode.getValue());
+                }
+            }
+            if (source.getProjection() != null) {
+                copies.get(source.getProjectionCriteria()).setProjection(source.getProjection());
+            }
+            result.setResultTransformer(source.getResultTransformer());
+        }
+        if (source.getComment() != null) {
+            result.setComment(source.getComment());
+        }
+        return result;
+    }
+
+    /**
+     * Read the instances of an entity with the specified primary key values.
+     *
+     * The instances already in the session, or in the second-level cache, are
+     * taken from there. The others are read with queries on chunks of primary
+     * key values (<code>where id in (...)</code>).
+     *
+     * @param <T> The entity class type.
+     * @param <PK> The type of the primary key of the entity.
+     * @param hibernateTemplate The template used for the queries.
+     * @param type The entity class type.
+     * @param ids The values of the primary keys.
+     * @param chunkSize The max number of primary key values in a single query.
+     *                  If not positive, {@link #DEFAULT_ID_CHUNK_SIZE} is used.
+     * @return The entities by primary key, iterated in the order of the requested values.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, PK extends Serializable> Map<PK, T> getAll(
+            final HibernateTemplate hibernateTemplate, final Class<T> type,
+            final Collection<PK> ids, final int chunkSize) {
+        final int size = chunkSize > 0 ? chunkSize : DEFAULT_ID_CHUNK_SIZE;
+        final Set<PK> requested = new LinkedHashSet<PK>(ids);
+        requested.remove(null);
+        final Map<PK, T> found = new HashMap<PK, T>();
+        hibernateTemplate.execute(new HibernateCallback() {
+
+            @Override
+            public Object doInHibernate(final Session session) {
+                SessionImplementor sessionImplementor = (SessionImplementor) session;
+                EntityPersister persister =
+                        sessionImplementor.getFactory().getEntityPersister(type.getName());
+                Cache cache = session.getSessionFactory().getCache();
+                List<PK> missing = new ArrayList<PK>();
+                for (PK id : requested) {
+                    Object entity = sessionImplementor.getPersistenceContext().getEntity(
+                            new EntityKey(id, persister, EntityMode.POJO));
+                    if (entity == null && cache.containsEntity(type, id)) {
+                        entity = session.get(type, id);
+                    }
+                    if (entity != null) {
+                        found.put(id, (T) entity);
+                    } else {
+                        missing.add(id);
+                    }
+                }
+                String idProperty = persister.getIdentifierPropertyName() != null
+                        ? persister.getIdentifierPropertyName() : "id";
+                for (int i = 0; i < missing.size(); i += size) {
+                    List<PK> chunk = missing.subList(i, Math.min(i + size, missing.size()));
+                    List<T> entities = session.createCriteria(type).
+                            add(Restrictions.in(idProperty, chunk)).list();
+                    for (T entity : entities) {
+                        found.put((PK) session.getIdentifier(entity), entity);
+                    }
+                }
+                return null;
+            }
+        });
+        Map<PK, T> result = new LinkedHashMap<PK, T>();
+        for (PK id : requested) {
+            T entity = found.get(id);
+            if (entity != null) {
+                result.put(id, entity);
             }
         }
         return result;
     }
+
+    /**
+     * Build the HQL query checking the existence of an instance of an entity
+     * by its primary key value.
+     *
+     * @param type The entity class type.
+     * @return The exists query, with the primary key value as positional parameter.
+     */
+    public static String buildExistsQuery(final Class<?> type) {
+        return "select x.id from " + type.getName() + " x where x.id = ?";
+    }
+
+    /**
+     * Check the existence of an instance, selecting at most its primary key value.
+     *
+     * @param hibernateTemplate The template used for the query.
+     * @param existsQuery The HQL exists query.
+     * @param id The value of the primary key.
+     * @return true if the instance exists.
+     */
+    public static boolean exists(final HibernateTemplate hibernateTemplate,
+            final String existsQuery, final Serializable id) {
+        List<?> result = hibernateTemplate.executeWithNativeSession(new HibernateCallback<List>() {
+
+            @Override
+            public List doInHibernate(final Session session) {
+                Query query = session.createQuery(existsQuery);
+                prepareQuery(hibernateTemplate, query);
+                query.setParameter(0, id);
+                query.setMaxResults(1);
+                return query.list();
+            }
+        });
+        return !result.isEmpty();
+    }
+
+    /**
+     * Retrieve all the instances of an entity in read-only mode.
+     *
+     * The query is prepared by the template, as the queries of the other
+     * methods of the template, so it uses the query cache, fetch size and
+     * timeout of the DAO.
+     *
+     * @param hibernateTemplate The template used for the query.
+     * @param type The entity class type.
+     * @return All the instances of the entity.
+     */
+    public static List findAllReadOnly(final HibernateTemplate hibernateTemplate,
+            final Class<?> type) {
+        return hibernateTemplate.executeWithNativeSession(new HibernateCallback<List>() {
+
+            @Override
+            public List doInHibernate(final Session session) {
+                Query query = session.createQuery("from " + type.getName() + " x");
+                prepareQuery(hibernateTemplate, query);
+                query.setReadOnly(true);
+                return query.list();
+            }
+        });
+    }
+
+    /**
+     * Prepare a query created on the native session of a template, applying
+     * the template settings (query cache, fetch size, max results and, for the
+     * templates of the DAOs, timeout).
+     *
+     * @param hibernateTemplate The template.
+     * @param query The query.
+     */
+    static void prepareQuery(final HibernateTemplate hibernateTemplate, final Query query) {
+        if (hibernateTemplate instanceof DaoHibernateTemplate) {
+            ((DaoHibernateTemplate) hibernateTemplate).prepareQuery(query);
+        } else {
+            new DaoHibernateTemplate(hibernateTemplate).prepareQuery(query);
+        }
+    }
+
+    /**
+     * Prepare a criteria created on the native session of a template, applying
+     * the template settings (query cache, fetch size, max results and, for the
+     * templates of the DAOs, timeout).
+     *
+     * @param hibernateTemplate The template.
+     * @param criteria The criteria.
+     */
+    static void prepareCriteria(final HibernateTemplate hibernateTemplate,
+            final Criteria criteria) {
+        if (hibernateTemplate instanceof DaoHibernateTemplate) {
+            ((DaoHibernateTemplate) hibernateTemplate).prepareCriteria(criteria);
+        } else {
+            new DaoHibernateTemplate(hibernateTemplate).prepareCriteria(criteria);
+        }
+    }
 }
@@ -0,0 +1,329 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.NamedQueryDefinition;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.lambico.dao.AutomaticDao;
+import org.lambico.dao.generic.Dao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * A validator of the DAO methods, executed when the application context is refreshed.
+ *
+ * It builds the plan of every method of the DAO interfaces, checking the
+ * method-name queries against the metadata of the session factory, so a finder
+ * with an unknown property or a wrong number of parameters is reported at the
+ * startup, instead of at its first invocation. The plans are stored in the
+ * instrumentation, and the HQL queries it executes (not the criteria ones) are
+ * translated to SQL in the query plan cache of the session factory, so the
+ * first invocations don't pay for it.
+ *
+ * It's not active by default: declare it as a bean in the application context
+ * (see genericDao.xml).
+ *
+ * @version $Revision$
+ */
+public class HibernateDaoValidator implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static Logger logger = LoggerFactory.getLogger(HibernateDaoValidator.class);
+    /** The session factory of the DAOs. */
+    private SessionFactory sessionFactory;
+    /** The instrumentation executing the DAO methods, where the plans are stored. */
+    private HibernateDaoInstrumentation hibernateDaoInstrumentation;
+    /** If true, the HQL queries of the DAO methods are translated at the startup. */
+    private boolean precompileQueries = true;
+    /** If true, an invalid DAO method stops the startup, otherwise it's only logged. */
+    private boolean failOnError = true;
+
+    /**
+     * Set the session factory of the DAOs.
+     *
+     * @param sessionFactory The session factory.
+     */
+    public void setSessionFactory(final SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Set the instrumentation executing the DAO methods. If it's not set, the
+     * methods are validated without storing their plans.
+     *
+     * @param hibernateDaoInstrumentation The instrumentation.
+     */
+    public void setHibernateDaoInstrumentation(
+            final HibernateDaoInstrumentation hibernateDaoInstrumentation) {
+        this.hibernateDaoInstrumentation = hibernateDaoInstrumentation;
+    }
+
+    /**
+     * Set if the HQL queries of the DAO methods are translated at the startup.
+     *
+     * @param precompileQueries true (the default) for translating the queries.
+     */
+    public void setPrecompileQueries(final boolean precompileQueries) {
+        this.precompileQueries = precompileQueries;
+    }
+
+    /**
+     * Set if an invalid DAO method stops the startup of the application context.
+     *
+     * @param failOnError true (the default) for throwing a
+     * {@link BeanInitializationException}, false for only logging the errors.
+     */
+    public void setFailOnError(final boolean failOnError) {
+        this.failOnError = failOnError;
+    }
+
+    /**
+     * Validate the DAOs of the refreshed application context.
+     *
+     * @param event The refresh event.
+     */
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        final long start = System.currentTimeMillis();
+        // the DAO interfaces, with the classes of their implementations
+        Map<Class<?>, Set<Class<?>>> daoInterfaces = new LinkedHashMap<Class<?>, Set<Class<?>>>();
+        for (Object dao : event.getApplicationContext().getBeansOfType(AutomaticDao.class).
+                values()) {
+            addDaoInterfaces(daoInterfaces, dao, AopUtils.getTargetClass(dao));
+        }
+        for (GeneratedDaoFactoryBean factory : event.getApplicationContext().
+                getBeansOfType(GeneratedDaoFactoryBean.class).values()) {
+            addDaoInterfaces(daoInterfaces, factory.getObject(), factory.getTarget().getClass());
+        }
+        List<String> errors = new ArrayList<String>();
+        for (Map.Entry<Class<?>, Set<Class<?>>> entry : daoInterfaces.entrySet()) {
+            for (Class<?> daoClass : entry.getValue()) {
+                errors.addAll(validate(entry.getKey().getAnnotation(Dao.class).entity(),
+                        entry.getKey(), daoClass));
+            }
+        }
+        if (!errors.isEmpty()) {
+            String message = "Invalid DAO methods:\n"
+                    + StringUtils.collectionToDelimitedString(errors, "\n");
+            if (failOnError) {
+                throw new BeanInitializationException(message);
+            }
+            logger.error(message);
+        }
+        logger.info("Validated " + daoInterfaces.size() + " DAO interfaces in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Add the DAO interfaces of a DAO.
+     *
+     * @param daoInterfaces The DAO interfaces found so far, with the classes of
+     *                      their implementations.
+     * @param dao The DAO.
+     * @param daoClass The class of the DAO implementation.
+     */
+    private void addDaoInterfaces(final Map<Class<?>, Set<Class<?>>> daoInterfaces,
+            final Object dao, final Class<?> daoClass) {
+        for (Class<?> daoInterface : ClassUtils.getAllInterfacesAsSet(dao)) {
+            if (daoInterface.isAnnotationPresent(Dao.class)) {
+                Set<Class<?>> daoClasses = daoInterfaces.get(daoInterface);
+                if (daoClasses == null) {
+                    daoClasses = new LinkedHashSet<Class<?>>();
+                    daoInterfaces.put(daoInterface, daoClasses);
+                }
+                daoClasses.add(daoClass);
+            }
+        }
+    }
+
+    /**
+     * Validate the methods of a DAO interface.
+     *
+     * @param entityType The entity type of the DAO.
+     * @param daoInterface The DAO interface.
+     * @return The errors found in the methods, empty if they are all valid.
+     */
+    List<String> validate(final Class<?> entityType, final Class<?> daoInterface) {
+        return validate(entityType, daoInterface, null);
+    }
+
+    /**
+     * Validate the methods of a DAO interface.
+     *
+     * @param entityType The entity type of the DAO.
+     * @param daoInterface The DAO interface.
+     * @param daoClass The class of the DAO implementation, null if there isn't one.
+     * @return The errors found in the methods, empty if they are all valid.
+     */
+    List<String> validate(final Class<?> entityType, final Class<?> daoInterface,
+            final Class<?> daoClass) {
+        List<String> errors = new ArrayList<String>();
+        for (Method method : daoInterface.getMethods()) {
+            FinderPlan plan = hibernateDaoInstrumentation != null
+                    ? hibernateDaoInstrumentation.getFinderPlan(entityType, method, sessionFactory,
+                            daoClass)
+                    : FinderPlan.build(entityType, method, sessionFactory, daoClass);
+            String error = validate(plan);
+            if (error != null) {
+                errors.add(method + ": " + error);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Validate the plan of a DAO method, translating its queries.
+     *
+     * @param plan The plan of the method.
+     * @return The error found in the plan, null if it's valid.
+     */
+    private String validate(final FinderPlan plan) {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+        try {
+            if (plan.isNamedQuery()) {
+                NamedQueryDefinition definition = factory.getNamedQuery(plan.getQueryName());
+                if (definition != null) {
+                    // named SQL queries don't need a translation
+                    precompile(definition.getQueryString());
+                }
+                return null;
+            }
+            if (!plan.isMethodNameQuery() && !plan.isBulkUpdate()) {
+                return null;
+            }
+            if (plan.getParseError() != null) {
+                return plan.getParseError();
+            }
+            List<String> paths = new ArrayList<String>();
+            for (FinderPlan.Condition condition : plan.getConditions()) {
+                paths.add(condition.getPropertyPath());
+            }
+            for (FinderPlan.Ordering ordering : plan.getOrderings()) {
+                paths.add(ordering.getPropertyPath());
+            }
+            for (FinderPlan.Assignment assignment : plan.getAssignments()) {
+                paths.add(assignment.getPropertyPath());
+            }
+            if (plan.getProjection() != null) {
+                paths.addAll(Arrays.asList(plan.getProjection()));
+            }
+            paths.addAll(plan.getJoinFetches());
+            for (String path : paths) {
+                if (!isPropertyPath(plan.getEntityType(), path)) {
+                    return "The property " + path + " of " + plan.getEntityType().getName()
+                            + " doesn't exist";
+                }
+            }
+            // only the HQL queries the instrumentation executes, not the criteria ones
+            boolean hqlFinders = hibernateDaoInstrumentation != null
+                    && hibernateDaoInstrumentation.isHqlFinders();
+            if (HibernateDaoInstrumentation.isHqlQuery(plan, hqlFinders)) {
+                precompile(plan.getHql());
+            }
+            if (hqlFinders && plan.getResultType() == FinderPlan.ResultType.PAGE
+                    && !plan.isSkipCount()) {
+                precompile(plan.getCountHql());
+            }
+            for (String query : plan.getSubselectFetchQueries()) {
+                precompile(query);
+            }
+        } catch (HibernateException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Translate an HQL query, storing its plan in the query plan cache of the
+     * session factory.
+     *
+     * @param hql The HQL query.
+     */
+    private void precompile(final String hql) {
+        if (precompileQueries) {
+            ((SessionFactoryImplementor) sessionFactory).getQueryPlanCache().
+                    getHQLQueryPlan(hql, false, Collections.EMPTY_MAP);
+        }
+    }
+
+    /**
+     * Check if a property path can be resolved from an entity, following its
+     * associations and components.
+     *
+     * @param entityType The entity type.
+     * @param path The property path.
+     * @return true if the path can be resolved.
+     */
+    boolean isPropertyPath(final Class<?> entityType, final String path) {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+        if (factory.getClassMetadata(entityType) == null) {
+            return false;
+        }
+        Type type = sessionFactory.getTypeHelper().entity(entityType);
+        for (String property : StringUtils.tokenizeToStringArray(path, ".")) {
+            if (type.isCollectionType()) {
+                type = ((CollectionType) type).getElementType(factory);
+            }
+            if (type.isEntityType()) {
+                ClassMetadata metadata = factory.getClassMetadata(
+                        ((EntityType) type).getAssociatedEntityName());
+                if (metadata == null) {
+                    return false;
+                }
+                if (property.equals(metadata.getIdentifierPropertyName())) {
+                    type = metadata.getIdentifierType();
+                } else if (Arrays.asList(metadata.getPropertyNames()).contains(property)) {
+                    type = metadata.getPropertyType(property);
+                } else {
+                    return false;
+                }
+            } else if (type.isComponentType()) {
+                CompositeType component = (CompositeType) type;
+                int index = Arrays.asList(component.getPropertyNames()).indexOf(property);
+                if (index < 0) {
+                    return false;
+                }
+                type = component.getSubtypes()[index];
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+}
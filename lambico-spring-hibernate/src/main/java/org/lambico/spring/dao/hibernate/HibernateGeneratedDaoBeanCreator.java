@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.lang.reflect.Method;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.parsing.ReaderContext;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.xml.BeanDefinitionParserDelegate;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+/**
+ * A creator for the DAO beans, implementing each DAO with a class generated
+ * at the startup (see {@link GeneratedDaoFactoryBean}), instead of a proxy
+ * instrumented by the {@link HibernateDaoInstrumentation} aspect.
+ *
+ * A DAO interface with methods that can't be resolved from their signature
+ * (methods executing only a named query, or with a name that can't be parsed)
+ * is still implemented by the instrumented proxy.
+ *
+ * For using it, redefine the lambico.daoBeanCreatorClass bean before the DAO
+ * definitions:
+ *
+ * <pre>
+ * &lt;bean id="lambico.daoBeanCreatorClass"
+ *       class="org.lambico.spring.dao.hibernate.HibernateGeneratedDaoBeanCreator" abstract="true"/&gt;
+ * </pre>
+ *
+ * @version $Revision$
+ */
+public class HibernateGeneratedDaoBeanCreator extends HibernateDaoBeanCreator {
+
+    private static Logger logger = LoggerFactory.getLogger(HibernateGeneratedDaoBeanCreator.class);
+    /** The name of the bean of the instrumentation executing the queries. */
+    public static final String INSTRUMENTATION_BEAN_NAME =
+            "hibernateGenericDaoInstrumentationAspect";
+
+    /**
+     * Creates the DaoBeanCreator.
+     *
+     * @param parserContext The ParserContext.
+     */
+    public HibernateGeneratedDaoBeanCreator(final ParserContext parserContext) {
+        super(parserContext);
+    }
+
+    /**
+     * Creates the DaoBeanCreator.
+     *
+     * @param rl The resource pattern resolver.
+     * @param registry The registry.
+     * @param delegate The delegate.
+     * @param readerContext The reader context.
+     */
+    public HibernateGeneratedDaoBeanCreator(final ResourcePatternResolver rl,
+            final BeanDefinitionRegistry registry, final BeanDefinitionParserDelegate delegate,
+            final ReaderContext readerContext) {
+        super(rl, registry, delegate, readerContext);
+    }
+
+    /**
+     * Build the DAO bean definition for a persistent class: a
+     * {@link GeneratedDaoFactoryBean}, or the instrumented proxy if the DAO
+     * interface can't be generated.
+     *
+     * @param persistentClass The type of the DAO.
+     * @param daoInterface The DAO interface, null for a DAO without interface.
+     * @param genericDaoName The parent DAO name.
+     * @return The bean definition.
+     * @throws ClassNotFoundException If the class of the base abstract generic DAO can't be found.
+     */
+    @Override
+    protected BeanDefinition buildBeanDefinition(final Class persistentClass,
+            final Class daoInterface, final String genericDaoName)
+            throws ClassNotFoundException {
+        if (!isGeneratable(persistentClass, daoInterface, getGenericDaoClass(genericDaoName))) {
+            logger.info("The DAO " + daoInterface.getName()
+                    + " can't be generated, it will be instrumented.");
+            return super.buildBeanDefinition(persistentClass, daoInterface, genericDaoName);
+        }
+        BeanDefinitionBuilder beanDefinitionBuilder =
+                BeanDefinitionBuilder.rootBeanDefinition(GeneratedDaoFactoryBean.class);
+        beanDefinitionBuilder.addPropertyValue("daoInterface", daoInterface);
+        beanDefinitionBuilder.addPropertyValue("target",
+                buildTargetDefinition(persistentClass, genericDaoName));
+        beanDefinitionBuilder.addPropertyReference("hibernateDaoInstrumentation",
+                INSTRUMENTATION_BEAN_NAME);
+        return beanDefinitionBuilder.getBeanDefinition();
+    }
+
+    /**
+     * Check if all the methods of a DAO interface can be implemented by a
+     * generated class: they must be methods of the generic DAO, or methods
+     * executing a query derived from their name.
+     *
+     * @param persistentClass The type of the DAO.
+     * @param daoInterface The DAO interface, null for a DAO without interface.
+     * @param genericDaoClass The class of the generic DAO.
+     * @return true if the DAO can be generated.
+     */
+    static boolean isGeneratable(final Class<?> persistentClass, final Class<?> daoInterface,
+            final Class<?> genericDaoClass) {
+        if (daoInterface == null) {
+            return true;
+        }
+        for (Method method : daoInterface.getMethods()) {
+            if (method.getDeclaringClass().isAssignableFrom(genericDaoClass)) {
+                continue;
+            }
+            FinderPlan plan = FinderPlan.build(persistentClass, method, null, genericDaoClass);
+            if (plan.getParseError() != null
+                    || !(plan.isMethodNameQuery() || plan.isBulkUpdate())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -21,7 +21,9 @@ package org.lambico.spring.dao.hibernate;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Resource;
 import org.hibernate.Criteria;
 import org.hibernate.SessionFactory;
@@ -32,18 +34,22 @@ import org.hibernate.criterion.Projections;
 import org.lambico.dao.generic.CacheIt;
 import org.lambico.dao.generic.GenericDaoBase;
 import org.lambico.dao.generic.GenericDaoTypeSupport;
+import org.lambico.dao.generic.KeysetPage;
 import org.lambico.dao.generic.Page;
 import org.lambico.dao.generic.PageDefaultImpl;
 import org.lambico.dao.hibernate.GenericDaoHibernateCriteriaSupport;
 import org.lambico.dao.spring.BusinessDao;
 import org.lambico.dao.spring.hibernate.GenericDaoHibernateSupport;
 import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
-import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.orm.hibernate3.HibernateTemplate;
 
 /**
  * A generic DAO wich can be extended and personalized.
  *
+ * The {@link org.lambico.dao.generic.FetchSize},
+ * {@link org.lambico.dao.generic.QueryTimeout} and
+ * {@link org.lambico.dao.generic.FlushMode} annotations of the DAO class are
+ * applied to the queries of all its methods.
  *
  * @param <T> The entity class type of the DAO.
  * @param <PK> The type of the primary key of the entity.
@@ -61,6 +67,30 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
      * A customized hibernate template.
      */
     private HibernateTemplate customizedHibernateTemplate;
+    /**
+     * The size of the batches of the collection operations, 0 for the default.
+     */
+    private int batchSize;
+    /**
+     * The max number of primary key values in a single query of getAll, 0 for the default.
+     */
+    private int idChunkSize;
+    /**
+     * If true, deleteAll deletes one by one the entities needing cascades.
+     */
+    private boolean cascadeAwareDeleteAll = true;
+    /**
+     * The HQL query counting all the instances.
+     */
+    private String countQuery;
+    /**
+     * The HQL query checking the existence of an instance.
+     */
+    private String existsQuery;
+    /**
+     * The native SQL query estimating the count of the instances, null for the exact count.
+     */
+    private String approximateCountQuery;
 
     /**
      * Build the DAO.
@@ -72,6 +102,8 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
             genericSuperclass = ((Class)genericSuperclass).getGenericSuperclass();
         }
         this.persistentClass = (Class<T>) ((ParameterizedType) genericSuperclass).getActualTypeArguments()[0];
+        this.countQuery = HibernateDaoUtils.buildCountQuery(this.persistentClass);
+        this.existsQuery = HibernateDaoUtils.buildExistsQuery(this.persistentClass);
     }
 
     /**
@@ -94,6 +126,21 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The template applies the query options of the annotations of the DAO class.
+     *
+     * @param sessionFactory {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected HibernateTemplate createHibernateTemplate(final SessionFactory sessionFactory) {
+        HibernateTemplate result = new DaoHibernateTemplate(sessionFactory);
+        HibernateDaoUtils.applyQueryOptions(result, getClass());
+        return result;
+    }
+
     /**
      * Init the DAO with the session factory.
      *
@@ -150,6 +197,28 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
         return (T) getHibernateTemplate().get(persistentClass, id);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param id {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean exists(final PK id) {
+        return HibernateDaoUtils.exists(getHibernateTemplate(), existsQuery, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param ids {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Map<PK, T> getAll(final Collection<PK> ids) {
+        return HibernateDaoUtils.getAll(getHibernateTemplate(), persistentClass, ids, idChunkSize);
+    }
+
     /**
      * {@inheritDoc}
      * @param o {@inheritDoc}
@@ -159,6 +228,42 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
         getHibernateTemplate().delete(o);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param transientObjects {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int createAll(final Collection<? extends T> transientObjects) {
+        return HibernateDaoUtils.executeInBatches(getHibernateTemplate(),
+                transientObjects, batchSize, HibernateDaoUtils.BatchOperation.PERSIST);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param objects {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int storeAll(final Collection<? extends T> objects) {
+        return HibernateDaoUtils.executeInBatches(getHibernateTemplate(), objects, batchSize,
+                HibernateDaoUtils.BatchOperation.MERGE);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param persistentObjects {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int deleteAll(final Collection<? extends T> persistentObjects) {
+        return HibernateDaoUtils.executeInBatches(getHibernateTemplate(),
+                persistentObjects, batchSize, HibernateDaoUtils.BatchOperation.DELETE);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -170,6 +275,17 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
         return getHibernateTemplate().find("from " + persistentClass.getName() + " x");
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> findAllReadOnly() {
+        return HibernateDaoUtils.findAllReadOnly(getHibernateTemplate(), persistentClass);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -183,6 +299,7 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
         for (Criterion c : criterion) {
             crit.add(c);
         }
+        HibernateDaoUtils.prepareCriteria(getHibernateTemplate(), crit);
         return crit.list();
     }
 
@@ -232,10 +349,12 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
             crit.add(c);
             count.add(c);
         }
+        HibernateDaoUtils.prepareCriteria(getHibernateTemplate(), crit);
+        HibernateDaoUtils.prepareCriteria(getHibernateTemplate(), count);
 
         // row count
         count.setProjection(Projections.rowCount());
-        int rowCount = ((Integer) count.list().get(0)).intValue();
+        int rowCount = ((Number) count.list().get(0)).intValue();
 
         crit.setFirstResult((page - 1) * pageSize);
         crit.setMaxResults(pageSize);
@@ -254,11 +373,7 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
     public Page<T> searchPaginatedByCriteria(final int page, final int pageSize,
             final DetachedCriteria criteria) {
         // Row count
-        criteria.setProjection(Projections.rowCount());
-        int rowCount = ((Integer) getHibernateTemplate().
-                findByCriteria(criteria).get(0)).intValue();
-        criteria.setProjection(null);
-        criteria.setResultTransformer(Criteria.ROOT_ENTITY);
+        int rowCount = (int) HibernateDaoUtils.countByCriteria(getHibernateTemplate(), criteria);
 
         @SuppressWarnings("unchecked")
         List<T> list = getHibernateTemplate().
@@ -280,15 +395,28 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
     /**
      * {@inheritDoc}
      *
+     * @param criteria {@inheritDoc}
+     * @param lastKey {@inheritDoc}
+     * @param pageSize {@inheritDoc}
+     * @param keyProperties {@inheritDoc}
      * @return {@inheritDoc}
      */
     @Override
-    public int deleteAll() {
-        List<T> rows = findAll();
-
-        getHibernateTemplate().deleteAll(rows);
+    public KeysetPage<T> searchKeysetPaginatedByCriteria(final DetachedCriteria criteria,
+            final Object[] lastKey, final int pageSize, final String... keyProperties) {
+        return HibernateDaoUtils.searchKeysetPaginatedByCriteria(getHibernateTemplate(), getType(),
+                criteria, lastKey, pageSize, keyProperties);
+    }
 
-        return rows.size();
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int deleteAll() {
+        return HibernateDaoUtils.deleteAll(getHibernateTemplate(), persistentClass,
+                cascadeAwareDeleteAll);
     }
 
     /**
@@ -298,8 +426,18 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
      */
     @Override
     public long count() {
-        return DataAccessUtils.intResult(getHibernateTemplate().find(
-                "select count(*) from " + getType().getSimpleName()));
+        return HibernateDaoUtils.count(getHibernateTemplate(), countQuery);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long estimateCount() {
+        return HibernateDaoUtils.estimateCount(getHibernateTemplate(),
+                getType(), approximateCountQuery, countQuery);
     }
 
     /**
@@ -310,8 +448,7 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
      */
     @Override
     public long countByCriteria(final DetachedCriteria criteria) {
-        criteria.setProjection(Projections.rowCount());
-        return DataAccessUtils.intResult(getHibernateTemplate().findByCriteria(criteria));
+        return HibernateDaoUtils.countByCriteria(getHibernateTemplate(), criteria);
     }
 
     /**
@@ -327,6 +464,54 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
         }
     }
 
+    /**
+     * Set the size of the batches of the collection operations (createAll,
+     * storeAll, deleteAll): the session is flushed and cleared at the end of
+     * every batch.
+     *
+     * @param batchSize The batch size. If not positive (the default), the JDBC batch size of
+     * the session factory (hibernate.jdbc.batch_size) is used, or
+     * {@link HibernateDaoUtils#DEFAULT_BATCH_SIZE} if it isn't defined.
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set the native SQL query used by {@link #estimateCount()}, usually
+     * reading the statistics of the database. The <code>table</code> named
+     * parameter, if used, is bound to the name of the table of the entity.
+     *
+     * @param approximateCountQuery The query, null (the default) for using the exact count.
+     */
+    public void setApproximateCountQuery(final String approximateCountQuery) {
+        this.approximateCountQuery = approximateCountQuery;
+    }
+
+    /**
+     * Set the max number of primary key values in a single query of
+     * {@link #getAll(java.util.Collection)}.
+     *
+     * @param idChunkSize The max number of values. If not positive (the default),
+     * {@link HibernateDaoUtils#DEFAULT_ID_CHUNK_SIZE} is used.
+     */
+    public void setIdChunkSize(final int idChunkSize) {
+        this.idChunkSize = idChunkSize;
+    }
+
+    /**
+     * Set the strategy of the {@link #deleteAll()} method.
+     *
+     * The instances are deleted by a single bulk statement. If cascade-aware
+     * (the default), the entities with cascading delete, orphan removal or
+     * collections are instead loaded and deleted one by one, applying their mappings.
+     *
+     * @param cascadeAwareDeleteAll false for always using the bulk statement.
+     */
+    public void setCascadeAwareDeleteAll(final boolean cascadeAwareDeleteAll) {
+        this.cascadeAwareDeleteAll = cascadeAwareDeleteAll;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -337,7 +522,7 @@ public class HibernateGenericBusinessDao<T, PK extends Serializable>
     @Override
     protected void initDao() throws Exception {
         super.initDao();
-        this.customizedHibernateTemplate = new HibernateTemplate(getSessionFactory());
+        this.customizedHibernateTemplate = createHibernateTemplate(getSessionFactory());
     }
 
     /**
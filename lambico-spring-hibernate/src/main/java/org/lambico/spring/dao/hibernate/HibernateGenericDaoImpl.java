@@ -22,18 +22,20 @@ import org.hibernate.Transaction;
 import org.hibernate.classic.Session;
 import org.lambico.dao.spring.hibernate.HibernateGenericDao;
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
-import org.apache.commons.lang.SerializationUtils;
+import java.util.Map;
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 
 import org.hibernate.criterion.Projections;
+import org.lambico.dao.generic.KeysetPage;
 import org.lambico.dao.generic.Page;
 import org.lambico.dao.generic.PageDefaultImpl;
+import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.HibernateTemplate;
 import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
-import org.springframework.dao.support.DataAccessUtils;
 
 /**
  * Hibernate implementation of the generic DAO.
@@ -60,7 +62,31 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
     /**
      * A customized hibernate template.
      */
-    private HibernateTemplate customizedHibernateTemplate;
+    private DaoHibernateTemplate customizedHibernateTemplate;
+    /**
+     * The size of the batches of the collection operations, 0 for the default.
+     */
+    private int batchSize;
+    /**
+     * The max number of primary key values in a single query of getAll, 0 for the default.
+     */
+    private int idChunkSize;
+    /**
+     * If true, deleteAll deletes one by one the entities needing cascades.
+     */
+    private boolean cascadeAwareDeleteAll = true;
+    /**
+     * The HQL query counting all the instances.
+     */
+    private String countQuery;
+    /**
+     * The HQL query checking the existence of an instance.
+     */
+    private String existsQuery;
+    /**
+     * The native SQL query estimating the count of the instances, null for the exact count.
+     */
+    private String approximateCountQuery;
 
     /**
      * {@inheritDoc}
@@ -106,6 +132,28 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
         return (T) getCustomizedHibernateTemplate().get(getType(), id);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param id {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public final boolean exists(final PK id) {
+        return HibernateDaoUtils.exists(getCustomizedHibernateTemplate(), existsQuery, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param ids {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public final Map<PK, T> getAll(final Collection<PK> ids) {
+        return HibernateDaoUtils.getAll(getCustomizedHibernateTemplate(), type, ids, idChunkSize);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -116,6 +164,42 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
         getCustomizedHibernateTemplate().delete(o);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param transientObjects {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public final int createAll(final Collection<? extends T> transientObjects) {
+        return HibernateDaoUtils.executeInBatches(getCustomizedHibernateTemplate(),
+                transientObjects, batchSize, HibernateDaoUtils.BatchOperation.PERSIST);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param objects {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public final int storeAll(final Collection<? extends T> objects) {
+        return HibernateDaoUtils.executeInBatches(getCustomizedHibernateTemplate(),
+                objects, batchSize, HibernateDaoUtils.BatchOperation.MERGE);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param persistentObjects {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public final int deleteAll(final Collection<? extends T> persistentObjects) {
+        return HibernateDaoUtils.executeInBatches(getCustomizedHibernateTemplate(),
+                persistentObjects, batchSize, HibernateDaoUtils.BatchOperation.DELETE);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -128,6 +212,17 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
                 "from " + getType().getName() + " x");
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public final List<T> findAllReadOnly() {
+        return HibernateDaoUtils.findAllReadOnly(getCustomizedHibernateTemplate(), getType());
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -137,11 +232,18 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
     @Override
     @SuppressWarnings("unchecked")
     public final List<T> searchByCriteria(final Criterion... criterion) {
-        Criteria crit = getSession().createCriteria(getType());
-        for (Criterion c : criterion) {
-            crit.add(c);
-        }
-        return crit.list();
+        return getCustomizedHibernateTemplate().executeFind(new HibernateCallback() {
+
+            @Override
+            public Object doInHibernate(final org.hibernate.Session session) {
+                Criteria crit = session.createCriteria(getType());
+                for (Criterion c : criterion) {
+                    crit.add(c);
+                }
+                customizedHibernateTemplate.prepareCriteria(crit);
+                return crit.list();
+            }
+        });
     }
 
     /**
@@ -190,6 +292,8 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
             crit.add(c);
             count.add(c);
         }
+        customizedHibernateTemplate.prepareCriteria(crit);
+        customizedHibernateTemplate.prepareCriteria(count);
 
         // row count
         count.setProjection(Projections.rowCount());
@@ -212,11 +316,8 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
     public final Page<T> searchPaginatedByCriteria(final int page,
             final int pageSize, final DetachedCriteria criteria) {
         // Row count
-        criteria.setProjection(Projections.rowCount());
-        int rowCount = ((Number) getHibernateTemplate().
-                findByCriteria(criteria).get(0)).intValue();
-        criteria.setProjection(null);
-        criteria.setResultTransformer(Criteria.ROOT_ENTITY);
+        int rowCount = (int) HibernateDaoUtils.countByCriteria(getCustomizedHibernateTemplate(),
+                criteria);
 
         @SuppressWarnings("unchecked")
         List<T> list = getCustomizedHibernateTemplate().
@@ -247,15 +348,28 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
     /**
      * {@inheritDoc}
      *
+     * @param criteria {@inheritDoc}
+     * @param lastKey {@inheritDoc}
+     * @param pageSize {@inheritDoc}
+     * @param keyProperties {@inheritDoc}
      * @return {@inheritDoc}
      */
     @Override
-    public int deleteAll() {
-        List<T> rows = findAll();
-
-        getCustomizedHibernateTemplate().deleteAll(rows);
+    public final KeysetPage<T> searchKeysetPaginatedByCriteria(final DetachedCriteria criteria,
+            final Object[] lastKey, final int pageSize, final String... keyProperties) {
+        return HibernateDaoUtils.searchKeysetPaginatedByCriteria(getCustomizedHibernateTemplate(),
+                getType(), criteria, lastKey, pageSize, keyProperties);
+    }
 
-        return rows.size();
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int deleteAll() {
+        return HibernateDaoUtils.deleteAll(getCustomizedHibernateTemplate(), getType(),
+                cascadeAwareDeleteAll);
     }
 
     /**
@@ -265,9 +379,18 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
      */
     @Override
     public final long count() {
-        return DataAccessUtils.intResult(
-                getCustomizedHibernateTemplate().find(
-                "select count(*) from " + getType().getSimpleName()));
+        return HibernateDaoUtils.count(getCustomizedHibernateTemplate(), countQuery);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public final long estimateCount() {
+        return HibernateDaoUtils.estimateCount(getCustomizedHibernateTemplate(),
+                getType(), approximateCountQuery, countQuery);
     }
 
     /**
@@ -278,10 +401,7 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
      */
     @Override
     public final long countByCriteria(final DetachedCriteria criteria) {
-        DetachedCriteria countCriteria = (DetachedCriteria) SerializationUtils.clone(criteria);
-        countCriteria.setProjection(Projections.rowCount());
-        return DataAccessUtils.intResult(getCustomizedHibernateTemplate().findByCriteria(
-                countCriteria));
+        return HibernateDaoUtils.countByCriteria(getCustomizedHibernateTemplate(), criteria);
     }
 
     /**
@@ -319,6 +439,56 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
     @SuppressWarnings("unchecked")
     public final void setType(final Class newType) {
         this.type = newType;
+        this.countQuery = HibernateDaoUtils.buildCountQuery(newType);
+        this.existsQuery = HibernateDaoUtils.buildExistsQuery(newType);
+    }
+
+    /**
+     * Set the size of the batches of the collection operations (createAll,
+     * storeAll, deleteAll): the session is flushed and cleared at the end of
+     * every batch.
+     *
+     * @param batchSize The batch size. If not positive (the default), the JDBC batch size of
+     * the session factory (hibernate.jdbc.batch_size) is used, or
+     * {@link HibernateDaoUtils#DEFAULT_BATCH_SIZE} if it isn't defined.
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set the native SQL query used by {@link #estimateCount()}, usually
+     * reading the statistics of the database. The <code>table</code> named
+     * parameter, if used, is bound to the name of the table of the entity.
+     *
+     * @param approximateCountQuery The query, null (the default) for using the exact count.
+     */
+    public void setApproximateCountQuery(final String approximateCountQuery) {
+        this.approximateCountQuery = approximateCountQuery;
+    }
+
+    /**
+     * Set the max number of primary key values in a single query of
+     * {@link #getAll(java.util.Collection)}.
+     *
+     * @param idChunkSize The max number of values. If not positive (the default),
+     * {@link HibernateDaoUtils#DEFAULT_ID_CHUNK_SIZE} is used.
+     */
+    public void setIdChunkSize(final int idChunkSize) {
+        this.idChunkSize = idChunkSize;
+    }
+
+    /**
+     * Set the strategy of the {@link #deleteAll()} method.
+     *
+     * The instances are deleted by a single bulk statement. If cascade-aware
+     * (the default), the entities with cascading delete, orphan removal or
+     * collections are instead loaded and deleted one by one, applying their mappings.
+     *
+     * @param cascadeAwareDeleteAll false for always using the bulk statement.
+     */
+    public void setCascadeAwareDeleteAll(final boolean cascadeAwareDeleteAll) {
+        this.cascadeAwareDeleteAll = cascadeAwareDeleteAll;
     }
 
     /**
@@ -331,7 +501,7 @@ public class HibernateGenericDaoImpl<T, PK extends Serializable>
     @Override
     protected void initDao() throws Exception {
         super.initDao();
-        this.customizedHibernateTemplate = new HibernateTemplate(getSessionFactory());
+        this.customizedHibernateTemplate = new DaoHibernateTemplate(getSessionFactory());
     }
 
     /**
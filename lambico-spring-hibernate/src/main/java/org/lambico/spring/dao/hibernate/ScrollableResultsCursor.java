@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.engine.EntityKey;
+import org.hibernate.transform.ResultTransformer;
+import org.lambico.dao.generic.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A {@link Cursor} reading the results from Hibernate scrollable results.
+ *
+ * The entities returned by the cursor are periodically evicted from the session,
+ * so the memory used by the session doesn't grow with the number of the results.
+ * Each eviction detaches all the entities loaded in the session since the cursor
+ * has been opened: the returned entities, their associations (for example the
+ * eager ones) and their initialized collections, but also the entities loaded by
+ * the caller while iterating the cursor. The entities that were already in the
+ * session when the cursor has been opened are kept. Modifications to the evicted
+ * entities aren't flushed to the database.
+ *
+ * @param <T> The type of the results.
+ * @version $Revision$
+ */
+class ScrollableResultsCursor<T> implements Cursor<T> {
+
+    private static Logger logger = LoggerFactory.getLogger(ScrollableResultsCursor.class);
+    /** The scrollable results. */
+    private final ScrollableResults results;
+    /** The session of the results. */
+    private final Session session;
+    /** The number of returned entities kept in the session, 0 for never evicting them. */
+    private final int evictionInterval;
+    /** The transformer of the rows, null for returning them as they are. */
+    private final ResultTransformer transformer;
+    /** The aliases of the row values passed to the transformer. */
+    private final String[] aliases;
+    /** The keys of the entities in the session when the cursor has been opened. */
+    private final Set<EntityKey> keptEntities;
+    /** The number of the returned entities since the last eviction. */
+    private int returnedEntities;
+    /** true if the results have been advanced to a row not yet returned. */
+    private boolean advanced;
+    /** true if the results are positioned on a row. */
+    private boolean available;
+    /** true if the cursor is closed. */
+    private boolean closed;
+
+    /**
+     * Build a cursor, closing it at the completion of the current transaction (if any).
+     *
+     * @param results The scrollable results.
+     * @param session The session of the results.
+     * @param evictionInterval The number of returned entities kept in the session
+     *                         before evicting them, 0 for never evicting them.
+     */
+    ScrollableResultsCursor(final ScrollableResults results, final Session session,
+            final int evictionInterval) {
+        this(results, session, evictionInterval, null, null);
+    }
+
+    /**
+     * Build a cursor transforming each row, closing it at the completion of the
+     * current transaction (if any).
+     *
+     * @param results The scrollable results.
+     * @param session The session of the results.
+     * @param evictionInterval The number of returned entities kept in the session
+     *                         before evicting them, 0 for never evicting them.
+     * @param transformer The transformer of the rows, null for returning them as they are.
+     * @param aliases The aliases of the row values passed to the transformer.
+     */
+    ScrollableResultsCursor(final ScrollableResults results, final Session session,
+            final int evictionInterval, final ResultTransformer transformer,
+            final String[] aliases) {
+        this.results = results;
+        this.session = session;
+        this.evictionInterval = evictionInterval;
+        this.transformer = transformer;
+        this.aliases = aliases;
+        this.keptEntities = evictionInterval > 0 ? HibernateDaoUtils.getEntityKeys(session)
+                : null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+
+                        @Override
+                        public void beforeCompletion() {
+                            close();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!advanced) {
+            // before advancing, as the results load the entities of the next row
+            if (evictionInterval > 0 && returnedEntities >= evictionInterval) {
+                evictLoadedEntities();
+            }
+            available = results.next();
+            advanced = true;
+            if (!available) {
+                close();
+            }
+        }
+        return available;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+        Object[] row = results.get();
+        if (evictionInterval > 0) {
+            for (Object value : row) {
+                if (value != null && session.contains(value)) {
+                    returnedEntities++;
+                }
+            }
+        }
+        if (transformer != null) {
+            return (T) transformer.transformTuple(row, aliases);
+        }
+        return (T) (row.length == 1 ? row[0] : row);
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("A cursor is read-only.");
+    }
+
+    /**
+     * Return this cursor, as it can be iterated only once.
+     *
+     * @return This cursor.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                results.close();
+            } catch (HibernateException e) {
+                logger.warn("Error closing the scrollable results of a cursor", e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Evict from the session the entities loaded since the cursor has been opened,
+     * with their collections.
+     */
+    private void evictLoadedEntities() {
+        HibernateDaoUtils.evictEntities(session, keptEntities);
+        returnedEntities = 0;
+    }
+}
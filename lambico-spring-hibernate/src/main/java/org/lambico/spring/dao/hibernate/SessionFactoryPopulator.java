@@ -100,23 +100,13 @@ public class SessionFactoryPopulator implements EntityDiscoverer {
     @Override
     public void pupulateWithEntities(final Element element, final String packageName,
             final String sessionFactoryName) {
-        List<Class> allClasses = ContextUtils.getAllClasses(rl, readerContext, packageName);
-        List<Class> persistentClasses = getPersistentClasses(allClasses);
+        List<Class> persistentClasses = ContextUtils.getClassesByAnnotation(rl, readerContext,
+                packageName, Entity.class, ContextUtils.ENTITIES_INDEX);
         BeanDefinition sessionFactoryBeanDefinition =
                 registry.getBeanDefinition(sessionFactoryName);
         addPersistentClasses(persistentClasses, sessionFactoryBeanDefinition);
     }
 
-    /**
-     * Filter the list of classes extracting only the DAO interfaces.
-     *
-     * @param classes The full list of classes
-     * @return The filtered list
-     */
-    List<Class> getPersistentClasses(final List<Class> classes) {
-        return ContextUtils.getClassesByAnnotation(classes, Entity.class);
-    }
-
     /**
      * Add the persistent classes to the SessionFactory.
      *
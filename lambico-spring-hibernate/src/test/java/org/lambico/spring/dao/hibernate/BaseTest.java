@@ -19,9 +19,12 @@ package org.lambico.spring.dao.hibernate;
 
 import org.lambico.spring.dao.hibernate.po.AuthorTC;
 import org.lambico.spring.dao.hibernate.po.BookTC;
+import org.lambico.spring.dao.hibernate.po.ChapterTC;
 import org.lambico.spring.dao.hibernate.po.EntityTC;
 import org.lambico.spring.dao.hibernate.po.EntityTCNoInheritance;
 import org.lambico.spring.dao.hibernate.po.EntityTCWithoutDaoInterface;
+import org.lambico.spring.dao.hibernate.po.NovelTC;
+import org.lambico.spring.dao.hibernate.po.WriterTC;
 import org.lambico.spring.dao.hibernate.pobis.EntityTCBis;
 import org.lambico.spring.dao.hibernate.poter.EntityTCTer;
 import org.lambico.test.spring.hibernate.DBTest;
@@ -38,7 +41,8 @@ public abstract class BaseTest extends DBTest {
     public Class[] getFixtureClasses() {
         return new Class[]{EntityTC.class, EntityTCBis.class, EntityTCTer.class,
             EntityTCWithoutDaoInterface.class, EntityTCNoInheritance.class,
-            BookTC.class, AuthorTC.class};
+            BookTC.class, AuthorTC.class, NovelTC.class, WriterTC.class,
+            ChapterTC.class};
     }
 
     @Override
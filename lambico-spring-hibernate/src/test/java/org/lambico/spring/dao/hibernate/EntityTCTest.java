@@ -165,4 +165,9 @@ public class EntityTCTest extends BaseTest {
         List<EntityTC> result = entityTCDao.searchByFieldOneArray(values);
         assertSize(3, result);
     }
+
+    public void testSearchByEmptyCollectionAndArray() {
+        assertSize(0, entityTCDao.searchByFieldOneCollection(new ArrayList<String>()));
+        assertSize(0, entityTCDao.searchByFieldOneArray(new String[0]));
+    }
 }
@@ -0,0 +1,316 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import junit.framework.TestCase;
+import org.hibernate.FlushMode;
+import org.lambico.dao.generic.CompareType;
+import org.lambico.spring.dao.hibernate.dao.WriterTCDao;
+import org.lambico.spring.dao.hibernate.dao.EntityTCDao;
+import org.lambico.spring.dao.hibernate.po.WriterTC;
+import org.lambico.spring.dao.hibernate.po.EntityTC;
+
+/**
+ * Tests on the construction of the finder plans.
+ */
+public class FinderPlanTest extends TestCase {
+
+    public FinderPlanTest(String testName) {
+        super(testName);
+    }
+
+    private FinderPlan plan(String methodName, Class<?>... parameterTypes) throws Exception {
+        return FinderPlan.build(EntityTC.class,
+                EntityTCDao.class.getMethod(methodName, parameterTypes));
+    }
+
+    public void testNativeMethod() throws Exception {
+        FinderPlan plan = plan("getType");
+        assertEquals(FinderPlan.QueryKind.NATIVE, plan.getQueryKind());
+    }
+
+    public void testFindWithConditions() throws Exception {
+        FinderPlan plan = plan("findByFieldOneAndFieldTwo", String.class, String.class);
+        assertEquals(FinderPlan.QueryKind.FIND, plan.getQueryKind());
+        assertEquals("EntityTC.findByFieldOneAndFieldTwo", plan.getQueryName());
+        assertEquals(2, plan.getConditions().size());
+        assertEquals("fieldOne", plan.getConditions().get(0).getPropertyPath());
+        assertEquals(0, plan.getConditions().get(0).getArgumentIndex());
+        assertEquals("fieldTwo", plan.getConditions().get(1).getPropertyPath());
+        assertEquals(1, plan.getConditions().get(1).getArgumentIndex());
+        assertTrue(plan.getOrderings().isEmpty());
+        assertTrue(plan.isListResult());
+        assertNull(plan.getParseError());
+        assertEquals("from " + EntityTC.class.getName()
+                + " x where x.fieldOne = ? and x.fieldTwo = ?", plan.getHql());
+    }
+
+    public void testCompareType() throws Exception {
+        FinderPlan plan = plan("findByFieldThree", String.class);
+        assertEquals(CompareType.ILIKE, plan.getConditions().get(0).getCompareType());
+        assertEquals("from " + EntityTC.class.getName() + " x where lower(x.fieldThree) like ?",
+                plan.getHql());
+    }
+
+    public void testOrderingAndSingleResult() throws Exception {
+        FinderPlan plan = plan("findByFieldOneOrderByFieldTwo", String.class);
+        assertEquals(1, plan.getConditions().size());
+        assertEquals(1, plan.getOrderings().size());
+        assertEquals("fieldTwo", plan.getOrderings().get(0).getPropertyPath());
+        assertTrue(plan.getOrderings().get(0).isAscending());
+        assertFalse(plan.isListResult());
+        assertEquals("from " + EntityTC.class.getName()
+                + " x where x.fieldOne = ? order by x.fieldTwo asc", plan.getHql());
+    }
+
+    public void testPaginationParameters() throws Exception {
+        FinderPlan plan = plan("findByOrderByFieldOne", int.class, int.class);
+        assertTrue(plan.getConditions().isEmpty());
+        assertFalse(plan.isQueryParameter(0));
+        assertFalse(plan.isQueryParameter(1));
+        Object[] args = new Object[]{Integer.valueOf(3), Integer.valueOf(7)};
+        assertEquals(Integer.valueOf(3), plan.getFirstResult(args));
+        assertEquals(Integer.valueOf(7), plan.getMaxResults(args));
+    }
+
+    public void testCount() throws Exception {
+        FinderPlan plan = plan("countByFieldOneAndFieldThree", String.class, String.class);
+        assertEquals(FinderPlan.QueryKind.COUNT, plan.getQueryKind());
+        assertEquals(2, plan.getConditions().size());
+        assertEquals("select count(*) from " + EntityTC.class.getName()
+                + " x where x.fieldOne = ? and x.fieldThree = ?", plan.getHql());
+    }
+
+    public void testExists() throws Exception {
+        FinderPlan plan = plan("existsByFieldOneAndFieldThree", String.class, String.class);
+        assertEquals(FinderPlan.QueryKind.EXISTS, plan.getQueryKind());
+        assertTrue(plan.isMethodNameQuery());
+        assertEquals("select x.id from " + EntityTC.class.getName()
+                + " x where x.fieldOne = ? and x.fieldThree = ?", plan.getHql());
+    }
+
+    public void testBulkDelete() throws Exception {
+        FinderPlan plan = plan("deleteByFieldOne", String.class);
+        assertEquals(FinderPlan.QueryKind.DELETE, plan.getQueryKind());
+        assertTrue(plan.isBulkUpdate());
+        assertFalse(plan.isMethodNameQuery());
+        assertEquals("delete from " + EntityTC.class.getName() + " x where x.fieldOne = ?",
+                plan.getHql());
+        assertNull(plan.getCountHql());
+    }
+
+    public void testBulkUpdate() throws Exception {
+        FinderPlan plan = plan("updateFieldTwoAndFieldThreeByFieldOne", String.class,
+                String.class, String.class);
+        assertEquals(FinderPlan.QueryKind.UPDATE, plan.getQueryKind());
+        assertEquals(2, plan.getAssignments().size());
+        assertEquals("fieldThree", plan.getAssignments().get(1).getPropertyPath());
+        assertEquals(1, plan.getAssignments().get(1).getArgumentIndex());
+        assertEquals(2, plan.getConditions().get(0).getArgumentIndex());
+        assertEquals("update " + EntityTC.class.getName()
+                + " x set x.fieldTwo = ?, x.fieldThree = ? where x.fieldOne = ?", plan.getHql());
+    }
+
+    public void testImplementedBulkMethods() throws Exception {
+        Method update = StatusDao.class.getMethod("updateFieldTwoByFieldOne", String.class,
+                String.class);
+        Method delete = StatusDao.class.getMethod("deleteByFieldOne", String.class);
+        FinderPlan plan = FinderPlan.build(EntityTC.class, update, null, StatusDaoImpl.class);
+        assertEquals(FinderPlan.QueryKind.OTHER, plan.getQueryKind());
+        assertFalse(plan.isBulkUpdate());
+        assertNull(plan.getHql());
+        plan = FinderPlan.build(EntityTC.class, delete, null, StatusDaoImpl.class);
+        assertEquals(FinderPlan.QueryKind.OTHER, plan.getQueryKind());
+        assertFalse(plan.isBulkUpdate());
+        // a DAO implementation not implementing the interface of the methods
+        plan = FinderPlan.build(EntityTC.class, update, null, HibernateGenericDaoImpl.class);
+        assertEquals(FinderPlan.QueryKind.UPDATE, plan.getQueryKind());
+        assertTrue(plan.isBulkUpdate());
+        plan = FinderPlan.build(EntityTC.class, delete);
+        assertEquals(FinderPlan.QueryKind.DELETE, plan.getQueryKind());
+    }
+
+    public void testProjections() throws Exception {
+        FinderPlan plan = plan("findByNumericField", Long.class);
+        assertEquals(FinderPlan.ProjectionKind.BEAN, plan.getProjectionKind());
+        assertEquals(Arrays.asList("fieldOne", "fieldTwo"), Arrays.asList(plan.getProjection()));
+        assertEquals("select x.fieldOne as fieldOne, x.fieldTwo as fieldTwo from "
+                + EntityTC.class.getName() + " x where x.numericField >= ?", plan.getHql());
+        plan = plan("findByFieldTwoOrderByFieldOne", String.class);
+        assertEquals(FinderPlan.ProjectionKind.CONSTRUCTOR, plan.getProjectionKind());
+        assertNotNull(plan.getResultTransformer());
+        assertEquals(FinderPlan.ProjectionKind.ARRAY,
+                plan("findByFieldThreeOrderByNumericField", String.class).getProjectionKind());
+        plan = plan("findByFieldOneOrderByNumericField", String.class);
+        assertEquals(FinderPlan.ProjectionKind.SCALAR, plan.getProjectionKind());
+        assertNull(plan.getResultTransformer());
+        assertEquals("select x.numericField from " + EntityTC.class.getName()
+                + " x where x.fieldOne = ? order by x.numericField asc", plan.getHql());
+        assertEquals(FinderPlan.ProjectionKind.NONE,
+                plan("findByFieldTwo", String.class).getProjectionKind());
+        assertEquals(FinderPlan.ProjectionKind.NONE,
+                plan("countByFieldTwo", String.class).getProjectionKind());
+    }
+
+    public void testComplexConditions() throws Exception {
+        FinderPlan plan = plan("findByFieldOneOrderByNumericFieldDesc", Collection.class);
+        assertEquals(CompareType.IN, plan.getConditions().get(0).getCompareType());
+        assertFalse(plan.getOrderings().get(0).isAscending());
+        assertEquals("from " + EntityTC.class.getName()
+                + " x where x.fieldOne in (:p0) order by x.numericField desc", plan.getHql());
+        plan = plan("findByNumericFieldOrderByFieldTwoDesc", Long.class, Long.class);
+        assertEquals(CompareType.BETWEEN, plan.getConditions().get(0).getCompareType());
+        assertEquals(1, plan.getConditions().get(0).getUpperArgumentIndex());
+        assertEquals("from " + EntityTC.class.getName()
+                + " x where x.numericField between ? and ? order by x.fieldTwo desc",
+                plan.getHql());
+        plan = plan("findByFieldOneOrFieldTwoAndFieldThreeOrderByNumericFieldDesc",
+                String.class, String.class, String.class);
+        assertEquals(2, plan.getConditionGroups());
+        assertEquals(1, plan.getConditions().get(2).getGroup());
+        assertEquals("from " + EntityTC.class.getName()
+                + " x where (x.fieldOne = ?) or (x.fieldTwo = ? and x.fieldThree = ?)"
+                + " order by x.numericField desc", plan.getHql());
+        plan = plan("findByNumericFieldAndFieldThreeIsNotNullOrderByFieldOneAscAndNumericFieldDesc",
+                long[].class);
+        assertEquals(CompareType.IS_NOT_NULL, plan.getConditions().get(1).getCompareType());
+        assertEquals(-1, plan.getConditions().get(1).getArgumentIndex());
+        assertEquals("from " + EntityTC.class.getName()
+                + " x where x.numericField in (:p0) and x.fieldThree is not null"
+                + " order by x.fieldOne asc, x.numericField desc", plan.getHql());
+        plan = plan("countByFieldTwoIsNullOrFieldOne", String.class);
+        assertEquals(0, plan.getConditions().get(1).getArgumentIndex());
+        assertEquals("select count(*) from " + EntityTC.class.getName()
+                + " x where (x.fieldTwo is null) or (x.fieldOne = ?)", plan.getHql());
+    }
+
+    public void testQueryOptions() throws Exception {
+        FinderPlan plan = plan("findByFieldOneOrderByFieldThree", String.class);
+        assertEquals(Integer.valueOf(20), plan.getFetchSize());
+        assertEquals(Integer.valueOf(10), plan.getTimeout());
+        assertEquals(FlushMode.COMMIT, plan.getFlushMode());
+        plan = plan("findByFieldTwo", String.class);
+        assertNull(plan.getFetchSize());
+        assertNull(plan.getTimeout());
+        assertNull(plan.getFlushMode());
+    }
+
+    public void testFetch() throws Exception {
+        FinderPlan plan = FinderPlan.build(WriterTC.class,
+                WriterTCDao.class.getMethod("findByOrderByName"));
+        assertEquals(Arrays.asList("novels"), plan.getJoinFetches());
+        assertTrue(plan.isFetchingCollections());
+        assertEquals("select distinct x from " + WriterTC.class.getName()
+                + " x left join fetch x.novels f0 order by x.name asc", plan.getHql());
+        assertEquals("select count(*) from " + WriterTC.class.getName() + " x",
+                plan.getCountHql());
+        plan = FinderPlan.build(WriterTC.class, WriterTCDao.class.getMethod("findByOrderById"));
+        assertTrue(plan.getJoinFetches().isEmpty());
+        assertEquals(Arrays.asList("select distinct x from " + WriterTC.class.getName()
+                + " x left join fetch x.novels f0 where x.id in (:ids)"),
+                plan.getSubselectFetchQueries());
+        // the collections of the paginated and single-result finders aren't joined
+        plan = FinderPlan.build(WriterTC.class, WriterTCDao.class.getMethod("findByOrderByName",
+                int.class, int.class));
+        assertTrue(plan.getJoinFetches().isEmpty());
+        assertFalse(plan.isFetchingCollections());
+        assertEquals(1, plan.getSubselectFetchQueries().size());
+        plan = FinderPlan.build(WriterTC.class, WriterTCDao.class.getMethod("findByName",
+                String.class));
+        assertTrue(plan.getJoinFetches().isEmpty());
+        assertFalse(plan.isFetchingCollections());
+        assertEquals(1, plan.getSubselectFetchQueries().size());
+    }
+
+    public void testFetchWithPageAndCursor() throws Exception {
+        FinderPlan plan = FinderPlan.build(WriterTC.class,
+                WriterTCDao.class.getMethod("findByOrderByNameDesc", int.class, int.class));
+        assertEquals(FinderPlan.ResultType.PAGE, plan.getResultType());
+        assertTrue(plan.getJoinFetches().isEmpty());
+        assertEquals(1, plan.getSubselectFetchQueries().size());
+        assertNull(plan.getParseError());
+        // the cursors can't run the further queries fetching the collections
+        plan = FinderPlan.build(WriterTC.class,
+                HibernateDaoValidatorTest.CursorWriterTCDao.class.getMethod("findByOrderByName"));
+        assertEquals(FinderPlan.ResultType.CURSOR, plan.getResultType());
+        assertTrue(plan.getParseError(), plan.getParseError().contains("novels"));
+        plan = FinderPlan.build(WriterTC.class,
+                HibernateDaoValidatorTest.CursorWriterTCDao.class.getMethod("findByOrderById"));
+        assertNotNull(plan.getParseError());
+    }
+
+    public void testNamedParameters() throws Exception {
+        FinderPlan plan = plan("searchByFieldOneArray", String[].class);
+        assertEquals(FinderPlan.QueryKind.OTHER, plan.getQueryKind());
+        assertEquals("values", plan.getNamedParameter(0));
+        assertTrue(plan.isListParameter(0));
+        assertNull(plan.getHql());
+    }
+
+    public void testResultType() throws Exception {
+        assertEquals(FinderPlan.ResultType.LIST,
+                plan("findByFieldTwo", String.class).getResultType());
+        assertEquals(FinderPlan.ResultType.SINGLE,
+                plan("findByFieldOneOrderByFieldTwo", String.class).getResultType());
+        assertEquals(FinderPlan.ResultType.CURSOR,
+                plan("findByOrderByFieldThree").getResultType());
+        assertEquals(FinderPlan.ResultType.CURSOR,
+                plan("findByFieldOne", String.class, int.class).getResultType());
+        assertEquals(FinderPlan.ResultType.CURSOR,
+                plan("searchAllOrderByFieldOne").getResultType());
+        FinderPlan page = plan("findByOrderByFieldThree", int.class, int.class);
+        assertEquals(FinderPlan.ResultType.PAGE, page.getResultType());
+        assertTrue(page.isSkipCount());
+    }
+
+    public void testCountHql() throws Exception {
+        FinderPlan plan = plan("findByFieldOneOrderByFieldTwo", String.class);
+        assertEquals("select count(*) from " + EntityTC.class.getName()
+                + " x where x.fieldOne = ?", plan.getCountHql());
+    }
+
+    /**
+     * A DAO interface with methods named as bulk statements.
+     */
+    public interface StatusDao {
+
+        int updateFieldTwoByFieldOne(String fieldTwo, String fieldOne);
+
+        int deleteByFieldOne(String fieldOne);
+    }
+
+    /**
+     * A DAO implementation providing the methods named as bulk statements.
+     */
+    public static class StatusDaoImpl extends HibernateGenericDaoImpl<EntityTC, Long>
+            implements StatusDao {
+
+        @Override
+        public int updateFieldTwoByFieldOne(String fieldTwo, String fieldOne) {
+            return 0;
+        }
+
+        @Override
+        public int deleteByFieldOne(String fieldOne) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,589 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Resource;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.lambico.dao.generic.Cursor;
+import org.lambico.dao.generic.Page;
+import org.lambico.dao.generic.PageUncountedImpl;
+import org.lambico.spring.dao.hibernate.dao.ChapterTCDao;
+import org.lambico.spring.dao.hibernate.dao.EntityTCDao;
+import org.lambico.spring.dao.hibernate.dao.EntityTCSummary;
+import org.lambico.spring.dao.hibernate.dao.WriterTCDao;
+import org.lambico.spring.dao.hibernate.po.ChapterTC;
+import org.lambico.spring.dao.hibernate.po.EntityTC;
+import org.lambico.spring.dao.hibernate.po.WriterTC;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+/**
+ * Tests on the execution of the DAO methods by the instrumentation aspect.
+ */
+public class HibernateDaoInstrumentationTest extends BaseTest {
+
+    @Resource
+    private HibernateDaoInstrumentation hibernateDaoInstrumentation;
+    @Resource
+    private EntityTCDao entityTCDao;
+    @Resource
+    private WriterTCDao writerTCDao;
+    @Resource
+    private ChapterTCDao chapterTCDao;
+
+    private FinderPlan plan(String methodName, Class<?>... parameterTypes) throws Exception {
+        Method method = EntityTCDao.class.getMethod(methodName, parameterTypes);
+        return hibernateDaoInstrumentation.getFinderPlan(EntityTC.class, method, sessionFactory,
+                AopUtils.getTargetClass(entityTCDao));
+    }
+
+    public void testNamedQueryResolvedOnce() throws Exception {
+        entityTCDao.findByFieldOne("one1");
+        FinderPlan plan = plan("findByFieldOne", String.class);
+        assertTrue(plan.isNamedQuery());
+        assertSame(plan, plan("findByFieldOne", String.class));
+    }
+
+    public void testPlanCachedByDaoClass() throws Exception {
+        Method method = EntityTCDao.class.getMethod("findByFieldOne", String.class);
+        FinderPlan plan = plan("findByFieldOne", String.class);
+        assertSame(AopUtils.getTargetClass(entityTCDao), plan.getDaoClass());
+        FinderPlan otherPlan =
+                hibernateDaoInstrumentation.getFinderPlan(EntityTC.class, method, sessionFactory);
+        assertNotSame(plan, otherPlan);
+        assertNull(otherPlan.getDaoClass());
+        assertSame(plan, plan("findByFieldOne", String.class));
+        assertSame(otherPlan,
+                hibernateDaoInstrumentation.getFinderPlan(EntityTC.class, method, sessionFactory));
+    }
+
+    public void testMethodNameQueryWithoutNamedQuery() throws Exception {
+        assertSize(1, entityTCDao.findByFieldTwo("two4"));
+        FinderPlan plan = plan("findByFieldTwo", String.class);
+        assertFalse(plan.isNamedQuery());
+        assertTrue(plan.isMethodNameQuery());
+    }
+
+    public void testNamedQueryForNonFinderMethod() throws Exception {
+        assertTrue(plan("maxByFieldOne", String.class).isNamedQuery());
+        assertFalse(plan("findAll").isNamedQuery());
+    }
+
+    public void testHqlFinders() throws Exception {
+        hibernateDaoInstrumentation.setHqlFinders(true);
+        try {
+            assertSize(1, entityTCDao.findByFieldTwo("two4"));
+            assertSize(4, entityTCDao.findByFieldThree("t%"));
+            List<EntityTC> entities = entityTCDao.findByOrderByFieldOne(1, 2);
+            assertSize(2, entities);
+            assertEquals("one2", entities.get(0).getFieldOne());
+            assertEquals("two1", entityTCDao.findByFieldOneOrderByFieldTwo("one3").getFieldTwo());
+            assertEquals(Long.valueOf(1), entityTCDao.countByFieldTwo("two4"));
+            assertEquals(Long.valueOf(1), entityTCDao.countByFieldOneAndFieldThree("one3",
+                    "7hree5"));
+            String hql = plan("findByFieldTwo", String.class).getHql();
+            assertTrue(Arrays.asList(sessionFactory.getStatistics().getQueries()).contains(hql));
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+    }
+
+    private String singleSelect(List<String> statements) {
+        assertSize(1, statements);
+        return statements.get(0).toLowerCase();
+    }
+
+    public void testCriteriaPaginationInSql() {
+        SqlRecordingInterceptor.start();
+        List<EntityTC> entities = entityTCDao.findByOrderByFieldOne(1, 2);
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertSize(2, entities);
+        assertEquals("one2", entities.get(0).getFieldOne());
+        assertTrue(sql, sql.contains(" limit "));
+        assertTrue(sql, sql.contains(" offset "));
+    }
+
+    public void testHqlPaginationInSql() {
+        hibernateDaoInstrumentation.setHqlFinders(true);
+        try {
+            SqlRecordingInterceptor.start();
+            List<EntityTC> entities = entityTCDao.findByOrderByFieldOne(1, 2);
+            String sql = singleSelect(SqlRecordingInterceptor.stop());
+            assertSize(2, entities);
+            assertTrue(sql, sql.contains(" limit "));
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+    }
+
+    public void testNamedQueryPaginationInSql() {
+        SqlRecordingInterceptor.start();
+        List<EntityTC> entities = entityTCDao.searchAllOrderByFieldOne(1, 2);
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertSize(2, entities);
+        assertTrue(sql, sql.contains(" limit "));
+    }
+
+    public void testIntegerPaginationParameters() {
+        SqlRecordingInterceptor.start();
+        List<EntityTC> entities = entityTCDao.findByOrderByFieldTwo(Integer.valueOf(0),
+                Integer.valueOf(3));
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertSize(3, entities);
+        assertTrue(sql, sql.contains(" limit "));
+        assertSize(5, entityTCDao.findByOrderByFieldTwo(null, null));
+    }
+
+    public void testSingleResultFetchesOneRow() {
+        SqlRecordingInterceptor.start();
+        EntityTC entity = entityTCDao.findByFieldOneOrderByFieldTwo("one3");
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertEquals("two1", entity.getFieldTwo());
+        assertTrue(sql, sql.contains(" limit "));
+        assertNull(entityTCDao.findByFieldOneOrderByFieldTwo("none"));
+    }
+
+    public void testStrictSingleResult() {
+        hibernateDaoInstrumentation.setStrictSingleResult(true);
+        try {
+            assertEquals(Long.valueOf(1), entityTCDao.countByFieldTwo("two4"));
+            try {
+                entityTCDao.findByFieldOneOrderByFieldTwo("one3");
+                fail("The query matches two rows, it should fail");
+            } catch (IncorrectResultSizeDataAccessException e) {
+                assertEquals(1, e.getExpectedSize());
+                assertEquals(2, e.getActualSize());
+            }
+        } finally {
+            hibernateDaoInstrumentation.setStrictSingleResult(false);
+        }
+    }
+
+    public void testExistsDoesntHydrate() {
+        sessionFactory.getCurrentSession().clear();
+        SqlRecordingInterceptor.start();
+        assertTrue(entityTCDao.existsByFieldOne("one3"));
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertTrue(sql, sql.contains(" limit "));
+        assertFalse(sql, sql.contains("fieldthree"));
+        assertEquals(0, sessionFactory.getCurrentSession().getStatistics().getEntityCount());
+        assertFalse(entityTCDao.existsByFieldOne("none"));
+    }
+
+    public void testExistsWithHql() {
+        hibernateDaoInstrumentation.setHqlFinders(true);
+        try {
+            sessionFactory.getCurrentSession().clear();
+            SqlRecordingInterceptor.start();
+            assertEquals(Boolean.TRUE,
+                    entityTCDao.existsByFieldOneAndFieldThree("one3", "7hree5"));
+            String sql = singleSelect(SqlRecordingInterceptor.stop());
+            assertTrue(sql, sql.contains(" limit "));
+            assertEquals(0, sessionFactory.getCurrentSession().getStatistics().getEntityCount());
+            assertEquals(Boolean.FALSE,
+                    entityTCDao.existsByFieldOneAndFieldThree("one1", "7hree5"));
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+    }
+
+    public void testBulkDelete() {
+        SqlRecordingInterceptor.start();
+        assertEquals(2, entityTCDao.deleteByFieldOne("one3"));
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertTrue(sql, sql.startsWith("delete "));
+        assertEquals(0, entityTCDao.deleteByFieldOne("one3"));
+        entityTCDao.deleteByFieldThree("three%");
+        assertSize(0, entityTCDao.findAll());
+    }
+
+    public void testBulkUpdate() {
+        SqlRecordingInterceptor.start();
+        assertEquals(2L, entityTCDao.updateFieldTwoAndFieldThreeByFieldOne("twoX", "ThreeX",
+                "one3"));
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertTrue(sql, sql.startsWith("update "));
+        sessionFactory.getCurrentSession().clear();
+        assertSize(2, entityTCDao.findByFieldTwo("twoX"));
+        assertEquals(Long.valueOf(2), entityTCDao.countByFieldOneAndFieldThree("one3", "ThreeX"));
+    }
+
+    private void checkProjections() {
+        sessionFactory.getCurrentSession().clear();
+        List<EntityTCSummary> summaries = entityTCDao.findByNumericField(Long.valueOf(4));
+        assertSize(2, summaries);
+        assertNotNull(summaries.get(0).getFieldOne());
+        assertNotNull(summaries.get(0).getFieldTwo());
+        assertNull(summaries.get(0).getLabel());
+        EntityTCSummary summary = entityTCDao.findByFieldTwoOrderByFieldOne("two2");
+        assertEquals("one4", summary.getFieldOne());
+        assertEquals("two2", summary.getFieldTwo());
+        List<Object[]> rows = entityTCDao.findByFieldThreeOrderByNumericField("three%");
+        assertSize(4, rows);
+        assertEquals("one1", rows.get(0)[0]);
+        assertEquals(Long.valueOf(1), rows.get(0)[1]);
+        assertEquals(Arrays.asList(Long.valueOf(3), Long.valueOf(5)),
+                entityTCDao.findByFieldOneOrderByNumericField("one3"));
+        assertEquals(0, sessionFactory.getCurrentSession().getStatistics().getEntityCount());
+    }
+
+    public void testProjections() {
+        SqlRecordingInterceptor.start();
+        entityTCDao.findByNumericField(Long.valueOf(4));
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertFalse(sql, sql.contains("fieldthree"));
+        checkProjections();
+    }
+
+    public void testNamedQueryProjections() throws Exception {
+        FinderPlan plan = plan("findByFieldTwoOrderByNumericField", String.class);
+        assertTrue(plan.isNamedQuery());
+        assertNull(plan.getResultTransformer());
+        List<EntityTCSummary> summaries = entityTCDao.findByFieldTwoOrderByNumericField("two%");
+        assertSize(5, summaries);
+        assertEquals("one1", summaries.get(0).getFieldOne());
+        assertEquals("two5", summaries.get(0).getFieldTwo());
+        assertEquals(Arrays.asList("one1", "one2", "one3", "one4"),
+                entityTCDao.findByNumericFieldOrderByFieldOne(Long.valueOf(4)));
+    }
+
+    public void testProjectionsWithHql() {
+        hibernateDaoInstrumentation.setHqlFinders(true);
+        try {
+            checkProjections();
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+    }
+
+    private void checkComplexConditions() {
+        List<EntityTC> result = entityTCDao.findByFieldOneOrderByNumericFieldDesc(
+                Arrays.asList("one3", "one4"));
+        assertSize(3, result);
+        assertEquals(Long.valueOf(5), result.get(0).getNumericField());
+        assertEquals(Long.valueOf(3), result.get(2).getNumericField());
+        result = entityTCDao.findByNumericFieldOrderByFieldTwoDesc(Long.valueOf(2), Long.valueOf(4));
+        assertSize(3, result);
+        assertEquals("two4", result.get(0).getFieldTwo());
+        assertEquals("two2", result.get(2).getFieldTwo());
+        result = entityTCDao.findByFieldOneOrFieldTwoAndFieldThreeOrderByNumericFieldDesc("one1",
+                "two3", "Three3");
+        assertSize(2, result);
+        assertEquals(Long.valueOf(3), result.get(0).getNumericField());
+        assertSize(1, entityTCDao.findByFieldOneOrFieldTwoAndFieldThreeOrderByNumericFieldDesc(
+                "one1", "two3", "Three4"));
+        result = entityTCDao.findByNumericFieldAndFieldThreeIsNotNullOrderByFieldOneAscAndNumericFieldDesc(
+                new long[]{1, 3, 5});
+        assertSize(3, result);
+        assertEquals("one1", result.get(0).getFieldOne());
+        assertEquals(Long.valueOf(5), result.get(1).getNumericField());
+        assertEquals(Long.valueOf(3), result.get(2).getNumericField());
+        assertEquals(Long.valueOf(2), entityTCDao.countByFieldTwoIsNullOrFieldOne("one3"));
+        // an empty IN list matches no rows
+        assertSize(0, entityTCDao.findByFieldOneOrderByNumericFieldDesc(
+                Collections.<String>emptyList()));
+        assertSize(0, entityTCDao.
+                findByNumericFieldAndFieldThreeIsNotNullOrderByFieldOneAscAndNumericFieldDesc(
+                new long[0]));
+    }
+
+    public void testComplexConditions() {
+        SqlRecordingInterceptor.start();
+        entityTCDao.findByFieldOneOrFieldTwoAndFieldThreeOrderByNumericFieldDesc("one1",
+                "two3", "Three3");
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertTrue(sql, sql.contains(" or "));
+        checkComplexConditions();
+    }
+
+    public void testComplexConditionsWithHql() {
+        hibernateDaoInstrumentation.setHqlFinders(true);
+        try {
+            checkComplexConditions();
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+    }
+
+    public void testProjectionCursor() {
+        Cursor<EntityTCSummary> cursor = entityTCDao.findByOrderByNumericField();
+        assertEquals("one1", cursor.next().getFieldOne());
+        assertEquals("two4", cursor.next().getFieldTwo());
+        cursor.close();
+    }
+
+    public void testReadOnly() {
+        Session session = sessionFactory.getCurrentSession();
+        session.clear();
+        List<EntityTC> entities = entityTCDao.findByFieldTwoOrderByFieldThree("two%");
+        assertSize(5, entities);
+        assertTrue(session.isReadOnly(entities.get(0)));
+        entities.get(0).setFieldOne("changed");
+        SqlRecordingInterceptor.start();
+        session.flush();
+        assertSize(0, SqlRecordingInterceptor.stop());
+        session.clear();
+        assertSize(0, entityTCDao.findByFieldOne("changed"));
+    }
+
+    public void testReadOnlyEvictingResults() {
+        Session session = sessionFactory.getCurrentSession();
+        session.clear();
+        List<EntityTC> entities = entityTCDao.findByFieldThreeOrderByFieldTwo("three%");
+        assertSize(4, entities);
+        assertEquals(0, session.getStatistics().getEntityCount());
+    }
+
+    public void testFlushMode() {
+        EntityTC entity = entityTCDao.findByFieldTwo("two5").get(0);
+        entity.setFieldOne("changed");
+        assertSize(0, entityTCDao.findByFieldOneOrderByFieldThree("changed"));
+        assertSize(1, entityTCDao.findByFieldTwo("two5"));
+        assertSize(1, entityTCDao.findByFieldOne("changed"));
+    }
+
+    private void checkNovelsFetched(List<WriterTC> writers) {
+        for (WriterTC writer : writers) {
+            assertTrue(Hibernate.isInitialized(writer.getNovels()));
+        }
+    }
+
+    public void testJoinFetch() {
+        sessionFactory.getCurrentSession().clear();
+        SqlRecordingInterceptor.start();
+        List<WriterTC> writers = writerTCDao.findByOrderByName();
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertTrue(sql, sql.contains(" join "));
+        assertSize(4, writers);
+        assertEquals("joe", writers.get(0).getName());
+        checkNovelsFetched(writers);
+        assertSize(2, writers.get(0).getNovels());
+    }
+
+    public void testJoinFetchWithPagination() {
+        sessionFactory.getCurrentSession().clear();
+        SqlRecordingInterceptor.start();
+        List<WriterTC> writers = writerTCDao.findByOrderByName(1, 2);
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(2, statements);
+        assertFalse(statements.get(0), statements.get(0).contains(" join "));
+        assertSize(2, writers);
+        assertEquals("john", writers.get(0).getName());
+        assertEquals("peter", writers.get(1).getName());
+        checkNovelsFetched(writers);
+    }
+
+    public void testJoinFetchWithSingleResult() {
+        sessionFactory.getCurrentSession().clear();
+        SqlRecordingInterceptor.start();
+        WriterTC writer = writerTCDao.findByName("sam");
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(2, statements);
+        assertFalse(statements.get(0), statements.get(0).contains(" join "));
+        assertEquals("sam", writer.getName());
+        checkNovelsFetched(Collections.singletonList(writer));
+        assertSize(2, writer.getNovels());
+    }
+
+    public void testJoinFetchWithPage() {
+        sessionFactory.getCurrentSession().clear();
+        SqlRecordingInterceptor.start();
+        Page<WriterTC> page = writerTCDao.findByOrderByNameDesc(1, 2);
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(3, statements);
+        assertFalse(statements.get(0), statements.get(0).contains(" join "));
+        assertEquals(4, page.getRowCount());
+        assertSize(2, page.getList());
+        assertEquals("peter", page.getList().get(0).getName());
+        assertEquals("john", page.getList().get(1).getName());
+        checkNovelsFetched(page.getList());
+    }
+
+    public void testSubselectFetch() {
+        sessionFactory.getCurrentSession().clear();
+        SqlRecordingInterceptor.start();
+        List<WriterTC> writers = writerTCDao.findByOrderById();
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(2, statements);
+        assertSize(4, writers);
+        checkNovelsFetched(writers);
+    }
+
+    public void testCursor() {
+        Cursor<EntityTC> cursor = entityTCDao.findByOrderByFieldThree();
+        assertNotNull(cursor);
+        List<String> values = new ArrayList<String>();
+        for (EntityTC entity : cursor) {
+            values.add(entity.getFieldThree());
+        }
+        assertSize(5, values);
+        assertTrue(cursor.isClosed());
+        assertFalse(cursor.hasNext());
+        List<String> sorted = new ArrayList<String>(values);
+        Collections.sort(sorted);
+        assertEquals(sorted, values);
+    }
+
+    public void testCursorFromNamedQuery() {
+        String previous = null;
+        int count = 0;
+        for (EntityTC entity : entityTCDao.searchAllOrderByFieldOne()) {
+            if (previous != null) {
+                assertTrue(previous.compareTo(entity.getFieldOne()) <= 0);
+            }
+            previous = entity.getFieldOne();
+            count++;
+        }
+        assertEquals(5, count);
+    }
+
+    public void testCursorWithLimitAndHql() {
+        hibernateDaoInstrumentation.setHqlFinders(true);
+        try {
+            Iterator<EntityTC> iterator = entityTCDao.findByFieldOne("one3", 1);
+            assertTrue(iterator.hasNext());
+            assertEquals("one3", iterator.next().getFieldOne());
+            assertFalse(iterator.hasNext());
+            try {
+                iterator.next();
+                fail("The cursor is exhausted");
+            } catch (NoSuchElementException e) {
+                // ok
+            }
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+    }
+
+    public void testCursorClose() {
+        Cursor<EntityTC> cursor = entityTCDao.findByOrderByFieldThree();
+        assertTrue(cursor.hasNext());
+        cursor.next();
+        cursor.close();
+        assertTrue(cursor.isClosed());
+        assertFalse(cursor.hasNext());
+        cursor.close();
+    }
+
+    public void testCursorEviction() {
+        hibernateDaoInstrumentation.setCursorEvictionInterval(2);
+        try {
+            Session session = sessionFactory.getCurrentSession();
+            session.clear();
+            Cursor<EntityTC> cursor = entityTCDao.findByOrderByFieldThree();
+            EntityTC first = cursor.next();
+            assertTrue(session.contains(first));
+            cursor.next();
+            EntityTC third = cursor.next();
+            assertFalse(session.contains(first));
+            assertTrue(session.contains(third));
+            cursor.close();
+        } finally {
+            hibernateDaoInstrumentation.setCursorEvictionInterval(
+                    HibernateDaoInstrumentation.DEFAULT_CURSOR_EVICTION_INTERVAL);
+        }
+    }
+
+    public void testCursorEvictionOfAssociations() {
+        hibernateDaoInstrumentation.setCursorEvictionInterval(1);
+        try {
+            Session session = sessionFactory.getCurrentSession();
+            session.clear();
+            EntityTC kept = entityTCDao.findByFieldTwo("two5").get(0);
+            Cursor<ChapterTC> cursor = chapterTCDao.findByOrderByTitle();
+            ChapterTC first = cursor.next();
+            assertTrue(session.contains(first.getNovel()));
+            int rows = 1;
+            while (cursor.hasNext()) {
+                cursor.next();
+                rows++;
+                // the kept entity, the last chapter and its eager novel
+                assertEquals(3, session.getStatistics().getEntityCount());
+            }
+            assertEquals(3, rows);
+            assertFalse(session.contains(first));
+            assertFalse(session.contains(first.getNovel()));
+            assertTrue(session.contains(kept));
+        } finally {
+            hibernateDaoInstrumentation.setCursorEvictionInterval(
+                    HibernateDaoInstrumentation.DEFAULT_CURSOR_EVICTION_INTERVAL);
+        }
+    }
+
+    public void testPage() {
+        SqlRecordingInterceptor.start();
+        Page<EntityTC> page = entityTCDao.findByFieldThreeOrderByFieldOne("t%", 2, 2);
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(2, statements);
+        assertTrue(statements.get(1), statements.get(1).toLowerCase().contains("count("));
+        assertFalse(statements.get(1), statements.get(1).toLowerCase().contains("order by"));
+        assertEquals(2, page.getPage());
+        assertEquals(4, page.getRowCount());
+        assertEquals(2, page.getLastPage());
+        assertFalse(page.isNextPage());
+        assertTrue(page.isPreviousPage());
+        assertSize(2, page.getList());
+        assertEquals("one3", page.getList().get(0).getFieldOne());
+    }
+
+    public void testPageWithHql() {
+        hibernateDaoInstrumentation.setHqlFinders(true);
+        try {
+            Page<EntityTC> page = entityTCDao.findByFieldThreeOrderByFieldOne("t%", 0, 3);
+            assertEquals(1, page.getPage());
+            assertEquals(4, page.getRowCount());
+            assertTrue(page.isNextPage());
+            assertSize(3, page.getList());
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+    }
+
+    public void testPageSkippingCount() {
+        SqlRecordingInterceptor.start();
+        Page<EntityTC> page = entityTCDao.findByOrderByFieldThree(2, 2);
+        String sql = singleSelect(SqlRecordingInterceptor.stop());
+        assertFalse(sql, sql.contains("count("));
+        assertTrue(page instanceof PageUncountedImpl);
+        assertEquals(2, page.getPage());
+        assertTrue(page.isNextPage());
+        assertSize(2, page.getList());
+        page = entityTCDao.findByOrderByFieldThree(4, 2);
+        assertEquals(3, page.getPage());
+        assertFalse(page.isNextPage());
+        assertSize(1, page.getList());
+    }
+
+    public void testPageFromNamedQuery() {
+        try {
+            entityTCDao.searchAllOrderByFieldOne(Integer.valueOf(0), Integer.valueOf(2));
+            fail("The rows of a named query can't be counted");
+        } catch (InvalidDataAccessApiUsageException e) {
+            // ok
+        }
+    }
+}
@@ -18,7 +18,21 @@
 
 package org.lambico.spring.dao.hibernate;
 
+import java.util.List;
+import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.impl.CriteriaImpl;
+import org.lambico.dao.spring.hibernate.GenericDaoHibernateSupport;
+import org.lambico.spring.dao.hibernate.dao.BookTCDao;
 import org.lambico.spring.dao.hibernate.dao.EntityTCDao;
+import org.lambico.spring.dao.hibernate.po.AuthorTC;
+import org.lambico.spring.dao.hibernate.po.BookTC;
+import org.lambico.spring.dao.hibernate.po.EntityTC;
 import javax.annotation.Resource;
 import static org.junit.Assert.*;
 
@@ -31,6 +45,8 @@ public class HibernateDaoUtilsTest extends BaseTest {
 
     @Resource
     private EntityTCDao entityTCDao;
+    @Resource
+    private BookTCDao bookTCDao;
 
     /**
      * Test of isAKnownNativeMethod method, of class HibernateDaoUtils.
@@ -46,4 +62,107 @@ public class HibernateDaoUtilsTest extends BaseTest {
                 "getType")));
     }
 
-}
\ No newline at end of file
+    /**
+     * Test of isBulkDeletable method, of class HibernateDaoUtils.
+     */
+    public void testIsBulkDeletable() {
+        assertTrue(HibernateDaoUtils.isBulkDeletable(sessionFactory, EntityTC.class));
+        assertFalse(HibernateDaoUtils.isBulkDeletable(sessionFactory, AuthorTC.class));
+        assertFalse(HibernateDaoUtils.isBulkDeletable(sessionFactory, BookTC.class));
+    }
+
+    /**
+     * Test of getHibernateTemplate method, of class HibernateDaoUtils.
+     */
+    public void testGetHibernateTemplateWithQueryOptions() {
+        assertNotNull(bookTCDao.findAll());
+        DaoHibernateTemplate template = (DaoHibernateTemplate)
+                ((GenericDaoHibernateSupport) bookTCDao).getCustomizedHibernateTemplate();
+        assertEquals(50, template.getFetchSize());
+        assertEquals(30, template.getQueryTimeout());
+        assertEquals(0, ((DaoHibernateTemplate) ((GenericDaoHibernateSupport) entityTCDao).
+                getCustomizedHibernateTemplate()).getQueryTimeout());
+    }
+
+    /**
+     * Test of findAllReadOnly method, of class HibernateDaoUtils.
+     */
+    public void testFindAllReadOnlyPreparedByTemplate() {
+        RecordingTemplate template = new RecordingTemplate(sessionFactory);
+        template.setQueryTimeout(30);
+        List<?> entities = HibernateDaoUtils.findAllReadOnly(template, EntityTC.class);
+        assertEquals(5, entities.size());
+        assertEquals(1, template.prepared);
+        assertTrue(sessionFactory.getCurrentSession().isReadOnly(entities.get(0)));
+    }
+
+    /**
+     * Test of the count and exists methods of class HibernateDaoUtils, checking
+     * that their queries and criteria are prepared by the template.
+     */
+    public void testCountAndExistsPreparedByTemplate() {
+        RecordingTemplate template = new RecordingTemplate(sessionFactory);
+        template.setQueryTimeout(30);
+        assertEquals(5, HibernateDaoUtils.count(template,
+                HibernateDaoUtils.buildCountQuery(EntityTC.class)));
+        assertEquals(1, template.prepared);
+        assertEquals(1, HibernateDaoUtils.estimateCount(template, EntityTC.class,
+                "select count(*) from INFORMATION_SCHEMA.TABLES where TABLE_NAME = upper(:table)",
+                null));
+        assertEquals(2, template.prepared);
+        assertFalse(HibernateDaoUtils.exists(template,
+                HibernateDaoUtils.buildExistsQuery(EntityTC.class), Long.valueOf(-1)));
+        assertEquals(3, template.prepared);
+        assertEquals(5, HibernateDaoUtils.countByCriteria(template,
+                DetachedCriteria.forClass(EntityTC.class)));
+        assertEquals(4, template.prepared);
+        assertEquals(2, HibernateDaoUtils.searchKeysetPaginatedByCriteria(template,
+                EntityTC.class, DetachedCriteria.forClass(EntityTC.class), null, 2).
+                getList().size());
+        assertEquals(5, template.prepared);
+    }
+
+    /**
+     * Test of copyCriteria method, of class HibernateDaoUtils: the fetch modes
+     * are copied only for the searches of the rows.
+     */
+    public void testCopyCriteriaFetchModes() {
+        DetachedCriteria criteria = DetachedCriteria.forClass(AuthorTC.class)
+                .setFetchMode("books", FetchMode.JOIN)
+                .add(Restrictions.eq("name", "joe"));
+        Session session = sessionFactory.getCurrentSession();
+        CriteriaImpl rows = (CriteriaImpl) HibernateDaoUtils.copyCriteria(criteria, session,
+                true);
+        assertEquals(FetchMode.JOIN, rows.getFetchMode("books"));
+        assertEquals("joe", ((AuthorTC) rows.list().get(0)).getName());
+        CriteriaImpl count = (CriteriaImpl) HibernateDaoUtils.copyCriteria(criteria, session,
+                false);
+        assertNull(count.getFetchMode("books"));
+        assertEquals(1L, HibernateDaoUtils.countByCriteria(
+                new DaoHibernateTemplate(sessionFactory), criteria));
+    }
+
+    /**
+     * A DAO template counting the queries and the criteria it prepares.
+     */
+    private static class RecordingTemplate extends DaoHibernateTemplate {
+
+        private int prepared;
+
+        RecordingTemplate(final SessionFactory sessionFactory) {
+            super(sessionFactory);
+        }
+
+        @Override
+        public void prepareQuery(final Query queryObject) {
+            super.prepareQuery(queryObject);
+            prepared++;
+        }
+
+        @Override
+        public void prepareCriteria(final Criteria criteria) {
+            super.prepareCriteria(criteria);
+            prepared++;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Resource;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.util.SoftLimitMRUCache;
+import org.lambico.dao.generic.Cursor;
+import org.lambico.dao.generic.Fetch;
+import org.lambico.dao.generic.FetchModeType;
+import org.lambico.dao.generic.GenericDao;
+import org.lambico.spring.dao.hibernate.dao.AuthorTCDao;
+import org.lambico.spring.dao.hibernate.dao.EntityTCDao;
+import org.lambico.spring.dao.hibernate.dao.WriterTCDao;
+import org.lambico.spring.dao.hibernate.po.AuthorTC;
+import org.lambico.spring.dao.hibernate.po.BookTC;
+import org.lambico.spring.dao.hibernate.po.EntityTC;
+import org.lambico.spring.dao.hibernate.po.WriterTC;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests on the startup validation of the DAO methods.
+ */
+public class HibernateDaoValidatorTest extends BaseTest {
+
+    @Resource
+    private HibernateDaoValidator hibernateDaoValidator;
+
+    /**
+     * A DAO interface with broken finders.
+     */
+    public interface BrokenEntityTCDao extends GenericDao<EntityTC, Long> {
+        List<EntityTC> findByFieldFour(String value);
+        List<EntityTC> findByFieldOneAndFieldTwo(String one);
+        List<EntityTC> findByOrderByFieldFive();
+        List<EntityTC> findByFieldOneOrderByFieldTwo(String one);
+    }
+
+    /**
+     * A DAO interface with a finder executed as a criteria, or as an HQL query.
+     */
+    public interface CriteriaEntityTCDao extends GenericDao<EntityTC, Long> {
+        List<EntityTC> findByFieldThreeOrderByNumericField(String three);
+    }
+
+    /**
+     * A DAO interface with cursor finders fetching collections.
+     */
+    public interface CursorWriterTCDao extends GenericDao<WriterTC, Long> {
+        @Fetch("novels")
+        Iterator<WriterTC> findByOrderByName();
+        @Fetch(value = "novels", mode = FetchModeType.SUBSELECT)
+        Cursor<WriterTC> findByOrderById();
+    }
+
+    @Resource
+    private HibernateDaoInstrumentation hibernateDaoInstrumentation;
+
+    private int queryPlans(boolean hqlFinders) {
+        SoftLimitMRUCache planCache = (SoftLimitMRUCache) ReflectionTestUtils.getField(
+                ((SessionFactoryImplementor) sessionFactory).getQueryPlanCache(), "planCache");
+        planCache.clear();
+        hibernateDaoInstrumentation.setHqlFinders(hqlFinders);
+        try {
+            assertTrue(hibernateDaoValidator.validate(EntityTC.class,
+                    CriteriaEntityTCDao.class).isEmpty());
+        } finally {
+            hibernateDaoInstrumentation.setHqlFinders(false);
+        }
+        return planCache.size();
+    }
+
+    public void testPrecompileOnlyHqlFinders() {
+        assertEquals(0, queryPlans(false));
+        assertEquals(1, queryPlans(true));
+    }
+
+    public void testValidDaos() {
+        assertTrue(hibernateDaoValidator.validate(EntityTC.class, EntityTCDao.class).isEmpty());
+        assertTrue(hibernateDaoValidator.validate(AuthorTC.class, AuthorTCDao.class).isEmpty());
+        assertTrue(hibernateDaoValidator.validate(WriterTC.class, WriterTCDao.class).isEmpty());
+    }
+
+    public void testBrokenFinders() {
+        List<String> errors = hibernateDaoValidator.validate(EntityTC.class,
+                BrokenEntityTCDao.class);
+        assertSize(3, errors);
+        assertTrue(errors.get(0), errors.toString().contains("fieldFour"));
+        assertTrue(errors.toString().contains("fieldTwo"));
+        assertTrue(errors.toString().contains("fieldFive"));
+    }
+
+    public void testCursorFetches() {
+        List<String> errors = hibernateDaoValidator.validate(WriterTC.class,
+                CursorWriterTCDao.class);
+        assertSize(2, errors);
+        assertTrue(errors.get(0), errors.get(0).contains("returns a cursor"));
+        assertTrue(errors.get(1), errors.get(1).contains("returns a cursor"));
+    }
+
+    public void testPropertyPaths() {
+        assertTrue(hibernateDaoValidator.isPropertyPath(AuthorTC.class, "name"));
+        assertTrue(hibernateDaoValidator.isPropertyPath(AuthorTC.class, "books.title"));
+        assertTrue(hibernateDaoValidator.isPropertyPath(BookTC.class, "authors.books.id"));
+        assertFalse(hibernateDaoValidator.isPropertyPath(AuthorTC.class, "books.name"));
+        assertFalse(hibernateDaoValidator.isPropertyPath(AuthorTC.class, "name.length"));
+        assertFalse(hibernateDaoValidator.isPropertyPath(String.class, "bytes"));
+    }
+}
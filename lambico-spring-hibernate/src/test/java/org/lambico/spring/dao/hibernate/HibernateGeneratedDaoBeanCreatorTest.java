@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.util.List;
+import javax.annotation.Resource;
+import org.hibernate.Hibernate;
+import org.lambico.dao.AutomaticDao;
+import org.lambico.dao.GeneratedDao;
+import org.lambico.dao.spring.hibernate.GenericDaoHibernateSupport;
+import org.lambico.spring.dao.hibernate.dao.AuthorTCDao;
+import org.lambico.spring.dao.hibernate.dao.BookTCDao;
+import org.lambico.spring.dao.hibernate.dao.EntityTCDao;
+import org.lambico.spring.dao.hibernate.dao.WriterTCDao;
+import org.lambico.spring.dao.hibernate.po.AuthorTC;
+import org.lambico.spring.dao.hibernate.po.EntityTC;
+import org.lambico.spring.dao.hibernate.po.WriterTC;
+
+/**
+ * Tests on the DAOs implemented by generated classes.
+ */
+public class HibernateGeneratedDaoBeanCreatorTest extends BaseTest {
+
+    @Resource
+    private AuthorTCDao authorTCDao;
+    @Resource
+    private BookTCDao bookTCDao;
+    @Resource
+    private EntityTCDao entityTCDao;
+    @Resource
+    private WriterTCDao writerTCDao;
+
+    @Override
+    protected String[] getConfigLocations() {
+        return new String[]{
+            "classpath:org/lambico/spring/dao/hibernate/genericDao.xml",
+            "classpath:org/lambico/spring/dao/hibernate/applicationContextBase.xml",
+            "classpath:applicationContext_generatedDaos_test.xml",
+            "classpath:applicationContext_test.xml"
+        };
+    }
+
+    public void testGeneratedDaos() {
+        assertTrue(authorTCDao instanceof GeneratedDao);
+        assertFalse(authorTCDao instanceof AutomaticDao);
+        assertTrue(bookTCDao instanceof GeneratedDao);
+        assertTrue(entityTCDao instanceof AutomaticDao);
+        assertFalse(entityTCDao instanceof GeneratedDao);
+    }
+
+    public void testIsGeneratable() {
+        assertTrue(HibernateGeneratedDaoBeanCreator.isGeneratable(AuthorTC.class,
+                AuthorTCDao.class, HibernateGenericDaoImpl.class));
+        assertFalse(HibernateGeneratedDaoBeanCreator.isGeneratable(EntityTC.class,
+                EntityTCDao.class, HibernateGenericDaoImpl.class));
+        assertTrue(HibernateGeneratedDaoBeanCreator.isGeneratable(EntityTC.class, null,
+                HibernateGenericDaoImpl.class));
+    }
+
+    public void testGenericDaoMethods() {
+        assertEquals(AuthorTC.class, authorTCDao.getType());
+        assertSize(4, authorTCDao.findAll());
+        AuthorTC author = new AuthorTC();
+        author.setName("ann");
+        authorTCDao.store(author);
+        assertNotNull(author.getId());
+        assertEquals("ann", authorTCDao.read(author.getId()).getName());
+    }
+
+    public void testDaoInterfaceConfiguration() {
+        assertEquals(50, ((GenericDaoHibernateSupport) bookTCDao).getCustomizedHibernateTemplate().
+                getFetchSize());
+    }
+
+    public void testQueryMethods() {
+        // named query
+        assertSize(1, authorTCDao.findByName("joe"));
+        assertSize(3, bookTCDao.findByTitle("%"));
+        // method-name query
+        List<WriterTC> writers = writerTCDao.findByOrderByName();
+        assertSize(4, writers);
+        assertEquals("joe", writers.get(0).getName());
+        assertTrue(Hibernate.isInitialized(writers.get(0).getNovels()));
+        assertSize(2, writerTCDao.findByOrderByName(1, 2));
+    }
+}
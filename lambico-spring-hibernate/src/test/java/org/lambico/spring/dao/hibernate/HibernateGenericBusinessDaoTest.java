@@ -19,8 +19,14 @@
 package org.lambico.spring.dao.hibernate;
 
 import org.lambico.spring.dao.hibernate.po.EntityTC;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Resource;
+import org.hibernate.Session;
+import org.hibernate.criterion.DetachedCriteria;
+import org.lambico.dao.generic.KeysetPage;
+import org.lambico.dao.generic.Page;
 import org.lambico.spring.dao.hibernate.bo.EntityTCBusinessDao;
 
 /**
@@ -46,5 +52,83 @@ public class HibernateGenericBusinessDaoTest  extends BaseTest {
         List<EntityTC> list = entityTCBusinessDao.findAll();
         assertNotNull(list);
     }
-    
-}
\ No newline at end of file
+
+    public void testQueryOptions() {
+        DaoHibernateTemplate template =
+                (DaoHibernateTemplate) entityTCBusinessDao.getCustomizedHibernateTemplate();
+        assertEquals(15, template.getQueryTimeout());
+        assertEquals(25, template.getFetchSize());
+        assertEquals(5, entityTCBusinessDao.count());
+    }
+
+    public void testSearchKeysetPaginatedByCriteria() {
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class);
+        KeysetPage<EntityTC> page = entityTCBusinessDao.searchKeysetPaginatedByCriteria(crit,
+                null, 4);
+        assertSize(4, page.getList());
+        assertTrue(page.isNextPage());
+        page = entityTCBusinessDao.searchKeysetPaginatedByCriteria(crit, page.getNextKey(), 4);
+        assertSize(1, page.getList());
+        assertFalse(page.isNextPage());
+    }
+
+    public void testCreateAllInBatches() {
+        List<EntityTC> entities = new ArrayList<EntityTC>();
+        for (int i = 0; i < 5; i++) {
+            EntityTC entity = new EntityTC();
+            entity.setFieldOne("batch" + i);
+            entities.add(entity);
+        }
+        Session session = sessionFactory.getCurrentSession();
+        EntityTC kept = entityTCBusinessDao.findAll().get(0);
+        entityTCBusinessDao.setBatchSize(2);
+        try {
+            assertEquals(5, entityTCBusinessDao.createAll(entities));
+        } finally {
+            entityTCBusinessDao.setBatchSize(0);
+        }
+        assertFalse(session.contains(entities.get(0)));
+        assertTrue(session.contains(entities.get(4)));
+        assertTrue(session.contains(kept));
+        assertEquals(10, entityTCBusinessDao.count());
+    }
+
+    public void testEstimateCount() {
+        assertEquals(5L, entityTCBusinessDao.estimateCount());
+        entityTCBusinessDao.setApproximateCountQuery("select count(*) * 1000"
+                + " from INFORMATION_SCHEMA.TABLES where TABLE_NAME = upper(:table)");
+        try {
+            assertEquals(1000L, entityTCBusinessDao.estimateCount());
+        } finally {
+            entityTCBusinessDao.setApproximateCountQuery(null);
+        }
+        assertEquals(5L, entityTCBusinessDao.count());
+    }
+
+    public void testCountByCriteriaReusingCriteria() {
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class);
+        assertEquals(5, entityTCBusinessDao.countByCriteria(crit));
+        assertSize(5, entityTCBusinessDao.searchByCriteria(crit));
+        Page<EntityTC> page = entityTCBusinessDao.searchPaginatedByCriteria(1, 2, crit);
+        assertEquals(5, page.getRowCount());
+        assertSize(2, page.getList());
+    }
+
+    public void testGetAllInChunks() {
+        List<Long> ids = new ArrayList<Long>();
+        for (EntityTC entity : entityTCBusinessDao.findAll()) {
+            ids.add(entity.getId());
+        }
+        sessionFactory.getCurrentSession().clear();
+        entityTCBusinessDao.setIdChunkSize(2);
+        try {
+            SqlRecordingInterceptor.start();
+            Map<Long, EntityTC> entities = entityTCBusinessDao.getAll(ids);
+            assertSize(3, SqlRecordingInterceptor.stop());
+            assertEquals(ids, new ArrayList<Long>(entities.keySet()));
+        } finally {
+            entityTCBusinessDao.setIdChunkSize(0);
+        }
+    }
+
+}
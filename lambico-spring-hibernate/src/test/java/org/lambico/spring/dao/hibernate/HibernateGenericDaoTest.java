@@ -21,11 +21,24 @@ package org.lambico.spring.dao.hibernate;
 import org.lambico.spring.dao.hibernate.bo.EntityTCBO;
 import org.lambico.spring.dao.hibernate.dao.EntityTCDao;
 import org.lambico.spring.dao.hibernate.po.EntityTC;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Resource;
+import org.hibernate.Session;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.impl.CriteriaImpl;
+import org.lambico.dao.generic.KeysetPage;
+import org.lambico.dao.generic.Page;
 import org.lambico.dao.spring.hibernate.HibernateGenericDao;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.orm.hibernate3.HibernateTemplate;
 
 /**
  * Test case for the generic DAO.
@@ -129,5 +142,184 @@ public class HibernateGenericDaoTest extends BaseTest {
         List<EntityTC> items  = ((HibernateGenericDao) this.entityTCDao).searchByCriteria(crit);
         assertSize(5, items);
     }
-    
+
+    public void testSearchKeysetPaginatedByCriteria() {
+        HibernateGenericDao<EntityTC, Long> dao = (HibernateGenericDao) this.entityTCDao;
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class).
+                addOrder(Order.desc("fieldOne"));
+        KeysetPage<EntityTC> page = dao.searchKeysetPaginatedByCriteria(crit, null, 2);
+        List<Long> ids = new ArrayList<Long>();
+        int pages = 0;
+        while (true) {
+            pages++;
+            for (EntityTC entity : page.getList()) {
+                ids.add(entity.getId());
+            }
+            if (!page.isNextPage()) {
+                break;
+            }
+            assertSize(2, page.getList());
+            assertEquals(page.getList().get(1).getId(), page.getNextKey()[0]);
+            page = dao.searchKeysetPaginatedByCriteria(crit, page.getNextKey(), 2);
+        }
+        assertEquals(3, pages);
+        assertSize(5, ids);
+        List<Long> sorted = new ArrayList<Long>(ids);
+        Collections.sort(sorted);
+        assertEquals(sorted, ids);
+    }
+
+    public void testSearchKeysetPaginatedByCriteriaWithKeyProperties() {
+        HibernateGenericDao<EntityTC, Long> dao = (HibernateGenericDao) this.entityTCDao;
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class).
+                add(Restrictions.eq("fieldOne", "one3"));
+        KeysetPage<EntityTC> page =
+                dao.searchKeysetPaginatedByCriteria(crit, null, 1, "fieldOne", "fieldTwo", "id");
+        assertSize(1, page.getList());
+        assertEquals("two1", page.getList().get(0).getFieldTwo());
+        assertEquals(3, page.getNextKey().length);
+        page = dao.searchKeysetPaginatedByCriteria(crit, page.getNextKey(), 1, "fieldOne",
+                "fieldTwo", "id");
+        assertSize(1, page.getList());
+        assertFalse(page.isNextPage());
+        assertNull(page.getNextKey());
+    }
+
+    public void testSearchKeysetPaginatedByCriteriaWithNullKey() {
+        HibernateGenericDao<EntityTC, Long> dao = (HibernateGenericDao) this.entityTCDao;
+        EntityTC entity = this.entityTCDao.findByFieldTwo("two3").get(0);
+        entity.setFieldTwo(null);
+        sessionFactory.getCurrentSession().flush();
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class);
+        try {
+            // HSQLDB sorts the nulls first, so the null value is in the key of the first row
+            dao.searchKeysetPaginatedByCriteria(crit, null, 1, "fieldTwo", "id");
+            fail("A null value of the key of a row must be rejected");
+        } catch (InvalidDataAccessApiUsageException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("fieldTwo"));
+        }
+        try {
+            dao.searchKeysetPaginatedByCriteria(crit, new Object[]{null, entity.getId()}, 2,
+                    "fieldTwo", "id");
+            fail("A null value of the last key must be rejected");
+        } catch (InvalidDataAccessApiUsageException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("fieldTwo"));
+        }
+    }
+
+    public void testCreateStoreDeleteAll() {
+        List<EntityTC> entities = new ArrayList<EntityTC>();
+        for (int i = 0; i < 3; i++) {
+            EntityTC entity = new EntityTC();
+            entity.setFieldOne("batch" + i);
+            entities.add(entity);
+        }
+        assertEquals(3, this.entityTCDao.createAll(entities));
+        assertEquals(8, this.entityTCDao.count());
+        for (EntityTC entity : entities) {
+            entity.setFieldTwo("stored");
+        }
+        assertEquals(3, this.entityTCDao.storeAll(entities));
+        assertSize(3, this.entityTCDao.findByFieldTwo("stored"));
+        assertEquals(3, this.entityTCDao.deleteAll(entities));
+        assertEquals(5, this.entityTCDao.count());
+    }
+
+    public void testDeleteAllInBulk() {
+        SqlRecordingInterceptor.start();
+        assertEquals(5, this.entityTCDao.deleteAll());
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(1, statements);
+        assertTrue(statements.get(0), statements.get(0).toLowerCase().startsWith("delete"));
+        assertEquals(0, this.entityTCDao.count());
+    }
+
+    public void testCountAndEstimateCount() {
+        assertEquals(5L, this.entityTCDao.count());
+        assertEquals(5L, this.entityTCDao.estimateCount());
+    }
+
+    public void testCountByCriteriaDoesntChangeCriteria() {
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class);
+        for (int i = 0; i < 12; i++) {
+            crit.add(Restrictions.ne("fieldOne", "none" + i));
+        }
+        crit.addOrder(Order.desc("fieldOne"));
+        HibernateGenericDao<EntityTC, Long> dao = (HibernateGenericDao) this.entityTCDao;
+        assertEquals(5, dao.countByCriteria(crit));
+        List<EntityTC> items = dao.searchByCriteria(crit);
+        assertSize(5, items);
+        assertEquals("one4", items.get(0).getFieldOne());
+        assertEquals(5, dao.countByCriteria(crit));
+        Page<EntityTC> page = dao.searchPaginatedByCriteria(2, 2, crit);
+        assertEquals(5, page.getRowCount());
+        assertEquals("one2", page.getList().get(1).getFieldOne());
+    }
+
+    public void testCountByCriteriaWithProjectionAndAlias() {
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class, "e").
+                add(Restrictions.eq("e.fieldOne", "one3")).
+                setProjection(Projections.property("e.fieldTwo")).
+                addOrder(Order.asc("e.fieldTwo"));
+        HibernateGenericDao<EntityTC, Long> dao = (HibernateGenericDao) this.entityTCDao;
+        assertEquals(2, dao.countByCriteria(crit));
+        List<?> fieldTwos = dao.searchByCriteria(crit);
+        assertEquals(Arrays.asList("two1", "two3"), fieldTwos);
+    }
+
+    public void testCountByCriteriaDoesntChangeCaching() {
+        HibernateTemplate template = new HibernateTemplate(sessionFactory);
+        template.setCacheQueries(true);
+        template.setQueryCacheRegion("countRegion");
+        DetachedCriteria crit = DetachedCriteria.forClass(EntityTC.class).
+                add(Restrictions.eq("fieldOne", "one3"));
+        assertEquals(2, HibernateDaoUtils.countByCriteria(template, crit));
+        CriteriaImpl executableCriteria =
+                (CriteriaImpl) crit.getExecutableCriteria(sessionFactory.getCurrentSession());
+        assertFalse(executableCriteria.getCacheable());
+        assertNull(executableCriteria.getCacheRegion());
+        assertNull(executableCriteria.getProjection());
+    }
+
+    public void testExists() {
+        EntityTC entity = this.entityTCDao.findByOrderByFieldTwo().get(0);
+        sessionFactory.getCurrentSession().clear();
+        SqlRecordingInterceptor.start();
+        assertTrue(this.entityTCDao.exists(entity.getId()));
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(1, statements);
+        assertFalse(statements.get(0), statements.get(0).toLowerCase().contains("fieldone"));
+        assertEquals(0, sessionFactory.getCurrentSession().getStatistics().getEntityCount());
+        assertFalse(this.entityTCDao.exists(Long.valueOf(-1)));
+    }
+
+    public void testFindAllReadOnly() {
+        Session session = sessionFactory.getCurrentSession();
+        session.clear();
+        List<EntityTC> entities = this.entityTCDao.findAllReadOnly();
+        assertSize(5, entities);
+        for (EntityTC entity : entities) {
+            assertTrue(session.isReadOnly(entity));
+        }
+    }
+
+    public void testGetAll() {
+        List<EntityTC> all = this.entityTCDao.findByOrderByFieldTwo();
+        List<Long> ids = new ArrayList<Long>();
+        for (EntityTC entity : all) {
+            ids.add(entity.getId());
+        }
+        ids.add(Long.valueOf(-1));
+        Collections.reverse(ids);
+        sessionFactory.getCurrentSession().clear();
+        EntityTC inSession = this.entityTCDao.get(ids.get(1));
+        SqlRecordingInterceptor.start();
+        Map<Long, EntityTC> entities = this.entityTCDao.getAll(ids);
+        List<String> statements = SqlRecordingInterceptor.stop();
+        assertSize(1, statements);
+        assertEquals(5, entities.size());
+        assertEquals(ids.subList(1, 6), new ArrayList<Long>(entities.keySet()));
+        assertSame(inSession, entities.get(ids.get(1)));
+        assertEquals("two5", entities.get(ids.get(1)).getFieldTwo());
+    }
 }
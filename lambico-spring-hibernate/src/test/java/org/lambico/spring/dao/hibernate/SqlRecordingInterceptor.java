@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * An interceptor recording the SQL statements prepared by Hibernate, for checking
+ * what is really sent to the database.
+ */
+public class SqlRecordingInterceptor extends EmptyInterceptor {
+
+    private static final List<String> statements =
+            Collections.synchronizedList(new ArrayList<String>());
+    private static volatile boolean recording;
+
+    /**
+     * Start recording, discarding the previously recorded statements.
+     */
+    public static void start() {
+        statements.clear();
+        recording = true;
+    }
+
+    /**
+     * Stop recording.
+     *
+     * @return The statements recorded since the last start.
+     */
+    public static List<String> stop() {
+        recording = false;
+        synchronized (statements) {
+            return new ArrayList<String>(statements);
+        }
+    }
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        if (recording) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}
@@ -19,6 +19,8 @@
 package org.lambico.spring.dao.hibernate.bo;
 
 import org.lambico.spring.dao.hibernate.po.EntityTC;
+import org.lambico.dao.generic.FetchSize;
+import org.lambico.dao.generic.QueryTimeout;
 import org.lambico.dao.spring.BusinessDao;
 import org.lambico.spring.dao.hibernate.HibernateGenericBusinessDao;
 
@@ -27,6 +29,8 @@ import org.lambico.spring.dao.hibernate.HibernateGenericBusinessDao;
  * @author Jacopo Murador <jacopo.murador at seesaw.it>
  */
 @BusinessDao
+@FetchSize(25)
+@QueryTimeout(15)
 public class EntityTCBusinessDao extends HibernateGenericBusinessDao<EntityTC, Long> {
 
 }
@@ -20,7 +20,9 @@ package org.lambico.spring.dao.hibernate.dao;
 import org.lambico.spring.dao.hibernate.po.BookTC;
 import java.util.List;
 import org.lambico.dao.generic.Dao;
+import org.lambico.dao.generic.FetchSize;
 import org.lambico.dao.generic.GenericDao;
+import org.lambico.dao.generic.QueryTimeout;
 
 /**
  * A DAO to be used for the tests M:N relationships.
@@ -28,6 +30,8 @@ import org.lambico.dao.generic.GenericDao;
  * @author michele franzin <michele at franzin.net>
  */
 @Dao(entity = BookTC.class)
+@FetchSize(50)
+@QueryTimeout(30)
 public interface BookTCDao extends GenericDao<BookTC, Long> {
     List<BookTC> findByTitle(String value);
 }
@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate.dao;
+
+import org.lambico.dao.generic.Cursor;
+import org.lambico.dao.generic.Dao;
+import org.lambico.dao.generic.GenericDao;
+import org.lambico.spring.dao.hibernate.po.ChapterTC;
+
+/**
+ * A DAO to be used for the tests of the eviction of the cursor results.
+ *
+ * @version $Revision$
+ */
+@Dao(entity = ChapterTC.class)
+public interface ChapterTCDao extends GenericDao<ChapterTC, Long> {
+    Cursor<ChapterTC> findByOrderByTitle();
+}
@@ -19,8 +19,13 @@
 package org.lambico.spring.dao.hibernate.dao;
 
 import java.util.Collection;
+import java.util.Iterator;
 import org.lambico.spring.dao.hibernate.po.EntityTC;
+import org.lambico.dao.generic.Cursor;
 import org.lambico.dao.generic.Dao;
+import org.lambico.dao.generic.FetchSize;
+import org.lambico.dao.generic.FlushMode;
+import org.lambico.dao.generic.FlushModeType;
 import org.lambico.dao.generic.MaxResults;
 import org.lambico.dao.generic.FirstResult;
 import org.lambico.dao.generic.Compare;
@@ -28,6 +33,11 @@ import org.lambico.dao.generic.CompareType;
 import java.util.List;
 import org.lambico.dao.generic.GenericDao;
 import org.lambico.dao.generic.NamedParameter;
+import org.lambico.dao.generic.Page;
+import org.lambico.dao.generic.Projection;
+import org.lambico.dao.generic.QueryTimeout;
+import org.lambico.dao.generic.ReadOnly;
+import org.lambico.dao.generic.SkipCount;
 
 /**
  * A DAO to be used for the tests of the generic DAO.
@@ -47,11 +57,47 @@ public interface EntityTCDao extends GenericDao<EntityTC, Long> {
     List<EntityTC> findByOrderByFieldOneAndFieldTwo();
     EntityTC findByFieldOneOrderByFieldTwo(String one);
     List<EntityTC> findByOrderByFieldOne(@FirstResult int firstResult, @MaxResults int maxResults);
+    List<EntityTC> findByOrderByFieldTwo(@FirstResult Integer firstResult, @MaxResults Integer maxResults);
     List<EntityTC> searchAllOrderByFieldOne(@FirstResult int firstResult, @MaxResults int maxResults);
+    Iterable<EntityTC> searchAllOrderByFieldOne();
+    Cursor<EntityTC> findByOrderByFieldThree();
+    Iterator<EntityTC> findByFieldOne(String value, @MaxResults int maxResults);
+    Page<EntityTC> findByFieldThreeOrderByFieldOne(@Compare(CompareType.ILIKE) String three, @FirstResult int firstResult, @MaxResults int maxResults);
+    @SkipCount
+    Page<EntityTC> findByOrderByFieldThree(@FirstResult int firstResult, @MaxResults int maxResults);
+    Page<EntityTC> searchAllOrderByFieldOne(@FirstResult Integer firstResult, @MaxResults Integer maxResults);
+    List<EntityTCSummary> findByNumericField(@Compare(CompareType.GE) Long value);
+    @Projection({"fieldOne", "fieldTwo"})
+    EntityTCSummary findByFieldTwoOrderByFieldOne(String two);
+    @Projection({"fieldOne", "numericField"})
+    List<Object[]> findByFieldThreeOrderByNumericField(@Compare(CompareType.ILIKE) String three);
+    @Projection("numericField")
+    List<Long> findByFieldOneOrderByNumericField(String one);
+    Cursor<EntityTCSummary> findByOrderByNumericField();
+    List<EntityTCSummary> findByFieldTwoOrderByNumericField(String two); // via named query
+    List<String> findByNumericFieldOrderByFieldOne(Long value); // via named query
+    @ReadOnly
+    List<EntityTC> findByFieldTwoOrderByFieldThree(@Compare(CompareType.LIKE) String two);
+    @ReadOnly(evict = true)
+    List<EntityTC> findByFieldThreeOrderByFieldTwo(@Compare(CompareType.ILIKE) String three);
+    @FetchSize(20)
+    @QueryTimeout(10)
+    @FlushMode(FlushModeType.COMMIT)
+    List<EntityTC> findByFieldOneOrderByFieldThree(String one);
+    List<EntityTC> findByFieldOneOrderByNumericFieldDesc(Collection<String> values);
+    List<EntityTC> findByNumericFieldOrderByFieldTwoDesc(@Compare(CompareType.BETWEEN) Long from, Long to);
+    List<EntityTC> findByFieldOneOrFieldTwoAndFieldThreeOrderByNumericFieldDesc(String one, String two, String three);
+    List<EntityTC> findByNumericFieldAndFieldThreeIsNotNullOrderByFieldOneAscAndNumericFieldDesc(@Compare(CompareType.IN) long[] values);
     Long countByFieldOne(String value);
     Long countByFieldTwo(String two); // via instrumentation
     Long countByFieldOneAndFieldThree(String one, String three); // via instrumentation
+    Long countByFieldTwoIsNullOrFieldOne(String one); // via instrumentation
     Long maxByFieldOne(String value);
+    boolean existsByFieldOne(String value); // via instrumentation
+    Boolean existsByFieldOneAndFieldThree(String one, String three); // via instrumentation
+    int deleteByFieldOne(String value); // via instrumentation
+    void deleteByFieldThree(@Compare(CompareType.ILIKE) String value); // via instrumentation
+    long updateFieldTwoAndFieldThreeByFieldOne(String two, String three, String one); // via instrumentation
     List<EntityTC> searchByFieldOneCollection(@NamedParameter("values") Collection<String> values);
     List<EntityTC> searchByFieldOneArray(@NamedParameter("values") String[] values);
 }
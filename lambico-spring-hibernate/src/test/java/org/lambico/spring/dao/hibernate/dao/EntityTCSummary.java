@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate.dao;
+
+/**
+ * A summary of an EntityTC, for the tests of the projection finders.
+ *
+ * @version $Revision$
+ */
+public class EntityTCSummary {
+
+    private String fieldOne;
+    private String fieldTwo;
+    private String label;
+
+    public EntityTCSummary() {
+    }
+
+    public EntityTCSummary(String fieldOne, String fieldTwo) {
+        this.fieldOne = fieldOne;
+        this.fieldTwo = fieldTwo;
+    }
+
+    public String getFieldOne() {
+        return fieldOne;
+    }
+
+    public void setFieldOne(String fieldOne) {
+        this.fieldOne = fieldOne;
+    }
+
+    public String getFieldTwo() {
+        return fieldTwo;
+    }
+
+    public void setFieldTwo(String fieldTwo) {
+        this.fieldTwo = fieldTwo;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate.dao;
+
+import java.util.List;
+import org.lambico.dao.generic.Dao;
+import org.lambico.dao.generic.Fetch;
+import org.lambico.dao.generic.FetchModeType;
+import org.lambico.dao.generic.FirstResult;
+import org.lambico.dao.generic.GenericDao;
+import org.lambico.dao.generic.MaxResults;
+import org.lambico.dao.generic.Page;
+import org.lambico.spring.dao.hibernate.po.WriterTC;
+
+/**
+ * A DAO to be used for the tests of the fetch hints of the finders.
+ *
+ * @version $Revision$
+ */
+@Dao(entity = WriterTC.class)
+public interface WriterTCDao extends GenericDao<WriterTC, Long> {
+    @Fetch("novels")
+    List<WriterTC> findByOrderByName();
+    @Fetch("novels")
+    List<WriterTC> findByOrderByName(@FirstResult int firstResult, @MaxResults int maxResults);
+    @Fetch(value = "novels", mode = FetchModeType.SUBSELECT)
+    List<WriterTC> findByOrderById();
+    @Fetch("novels")
+    WriterTC findByName(String name);
+    @Fetch("novels")
+    Page<WriterTC> findByOrderByNameDesc(@FirstResult int firstResult,
+            @MaxResults int maxResults);
+}
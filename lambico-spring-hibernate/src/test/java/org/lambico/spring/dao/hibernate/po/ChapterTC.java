@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate.po;
+
+import javax.persistence.FetchType;
+import javax.persistence.ManyToOne;
+import org.lambico.po.hibernate.EntityBase;
+
+/**
+ * A persistent object with an eager N:1 relationship not cascading the
+ * operations, for the tests of the eviction of the cursor results.
+ *
+ * @version $Revision$
+ */
+@javax.persistence.Entity
+public class ChapterTC extends EntityBase {
+
+    private static final long serialVersionUID = 1L;
+
+    private String title = null;
+
+    private NovelTC novel = null;
+
+    public ChapterTC() {
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    public NovelTC getNovel() {
+        return novel;
+    }
+
+    public void setNovel(NovelTC novel) {
+        this.novel = novel;
+    }
+}
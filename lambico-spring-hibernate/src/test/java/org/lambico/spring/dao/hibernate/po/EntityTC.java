@@ -37,7 +37,9 @@ import javax.persistence.NamedQuery;
 @NamedQuery(name="EntityTC.countByFieldOne", query="select count(etc) from EntityTC etc where etc.fieldOne = ?"),
 @NamedQuery(name="EntityTC.maxByFieldOne", query="select max(etc.numericField) from EntityTC etc where etc.fieldOne = ?"),
 @NamedQuery(name="EntityTC.searchByFieldOneCollection", query="from EntityTC where fieldOne in (:values)"),
-@NamedQuery(name="EntityTC.searchByFieldOneArray", query="from EntityTC where fieldOne in (:values)")})
+@NamedQuery(name="EntityTC.searchByFieldOneArray", query="from EntityTC where fieldOne in (:values)"),
+@NamedQuery(name="EntityTC.findByFieldTwoOrderByNumericField", query="select new org.lambico.spring.dao.hibernate.dao.EntityTCSummary(fieldOne, fieldTwo) from EntityTC where fieldTwo like ? order by numericField"),
+@NamedQuery(name="EntityTC.findByNumericFieldOrderByFieldOne", query="select fieldOne from EntityTC where numericField <= ? order by fieldOne")})
 public class EntityTC extends EntityBase {
     private String fieldOne;
     private String fieldTwo;
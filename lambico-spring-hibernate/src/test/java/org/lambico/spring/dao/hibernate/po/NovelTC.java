@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate.po;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.CascadeType;
+import javax.persistence.FetchType;
+import javax.persistence.ManyToMany;
+import org.lambico.po.hibernate.EntityBase;
+
+/**
+ * A persistent object with a lazy M:N relationship, for the tests of the
+ * fetch hints of the finders.
+ *
+ * @version $Revision$
+ */
+@javax.persistence.Entity
+public class NovelTC extends EntityBase {
+
+    private static final long serialVersionUID = 1L;
+
+    private String title = null;
+
+    private List<WriterTC> writers = new ArrayList<WriterTC>();
+
+    public NovelTC() {
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @ManyToMany(targetEntity = WriterTC.class, cascade = { CascadeType.ALL }, mappedBy = "novels", fetch = FetchType.LAZY)
+    public List<WriterTC> getWriters() {
+        return writers;
+    }
+
+    public void setWriters(List<WriterTC> writers) {
+        this.writers = writers;
+    }
+}
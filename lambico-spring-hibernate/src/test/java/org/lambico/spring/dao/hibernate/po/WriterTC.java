@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring - Hibernate.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.lambico.spring.dao.hibernate.po;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.CascadeType;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
+import org.lambico.po.hibernate.EntityBase;
+
+/**
+ * A persistent object with a lazy M:N relationship, for the tests of the
+ * fetch hints of the finders.
+ *
+ * @version $Revision$
+ */
+@javax.persistence.Entity
+public class WriterTC extends EntityBase {
+
+    private static final long serialVersionUID = 1L;
+
+    private String name = null;
+
+    private List<NovelTC> novels = new ArrayList<NovelTC>();
+
+    public WriterTC() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @ManyToMany(targetEntity = NovelTC.class, cascade = { CascadeType.ALL }, fetch = FetchType.LAZY)
+    @JoinTable(name = "WRITER_NOVEL", joinColumns = { @JoinColumn(name = "writer_id") }, inverseJoinColumns = { @JoinColumn(name = "novel_id") })
+    public List<NovelTC> getNovels() {
+        return novels;
+    }
+
+    public void setNovels(List<NovelTC> novels) {
+        this.novels = novels;
+    }
+}
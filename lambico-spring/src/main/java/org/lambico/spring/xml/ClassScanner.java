@@ -0,0 +1,459 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.spring.xml;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * A scanner of the classes of a package subtree reading the class files
+ * metadata, without loading the classes.
+ *
+ * The class files of a package are read only once for each resource pattern
+ * resolver (i.e. for each application context), so the parsers scanning the
+ * same packages (for example the ones discovering the persistent classes and
+ * the ones defining the DAOs) share the same scan, even if they look for
+ * different annotations. Only the names of the classes, of their superclasses
+ * and of their annotations are cached: the metadata readers are released at
+ * the end of each scan.
+ *
+ * The resources of the packages are searched and their metadata read by a
+ * bounded pool of threads (a ThreadPoolExecutor, as the fork-join pool isn't
+ * available in Java 6). The size of the pool is the
+ * number of the available processors, or the value of the
+ * {@link #THREADS_PROPERTY} system property (1 for scanning in the calling
+ * thread). The results are merged in the order of the packages and of the
+ * resources, so they don't depend on the scheduling of the threads. Every scan
+ * is reported in the log at the INFO level.
+ *
+ * @version $Revision$
+ */
+final class ClassScanner {
+
+    /** The system property for the number of the scanning threads. */
+    static final String THREADS_PROPERTY = "lambico.scan.threads";
+    /** The number of class files read or matched by each task. */
+    private static final int CHUNK_SIZE = 64;
+    private static Logger logger = LoggerFactory.getLogger(ClassScanner.class);
+    /**
+     * The scanners for each resource pattern resolver. The scanners don't
+     * reference the resolvers, so they are released with the resolvers.
+     */
+    private static final Map<ResourcePatternResolver, ClassScanner> SCANNERS =
+            new WeakHashMap<ResourcePatternResolver, ClassScanner>();
+    /**
+     * The factory reading the class files of the packages. It doesn't cache the
+     * readers, so it can be used concurrently by the scanning threads.
+     */
+    private final MetadataReaderFactory metadataReaderFactory =
+            new SimpleMetadataReaderFactory(ClassUtils.getDefaultClassLoader());
+    /** The classes of the scanned packages, by package. */
+    private final Map<String, List<ScannedClass>> packages =
+            new HashMap<String, List<ScannedClass>>();
+    /** The classes of the scanned packages and their superclasses, by name. */
+    private final Map<String, ScannedClass> classes = new HashMap<String, ScannedClass>();
+
+    /**
+     * The constructor.
+     */
+    private ClassScanner() {
+    }
+
+    /**
+     * Return the scanner for a resource pattern resolver.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @return The scanner.
+     */
+    static ClassScanner getInstance(final ResourcePatternResolver resourcePatternResolver) {
+        synchronized (SCANNERS) {
+            ClassScanner result = SCANNERS.get(resourcePatternResolver);
+            if (result == null) {
+                result = new ClassScanner();
+                SCANNERS.put(resourcePatternResolver, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Return the metadata of all the classes in the package subtrees. The
+     * metadata aren't cached, so each invocation reads the class files again.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param packageNames The base packages.
+     * @return The metadata readers of the classes, in the order of the packages.
+     * @throws IOException If the class files can't be read.
+     */
+    List<MetadataReader> getMetadataReaders(
+            final ResourcePatternResolver resourcePatternResolver, final String... packageNames)
+            throws IOException {
+        List<MetadataReader> result = new ArrayList<MetadataReader>();
+        for (List<MetadataReader> readers : readPackages(resourcePatternResolver,
+                Arrays.asList(packageNames), new long[2])) {
+            result.addAll(readers);
+        }
+        return result;
+    }
+
+    /**
+     * Return the names of the classes in the package subtrees annotated with a
+     * specific annotation, scanning the packages not already scanned.
+     *
+     * As for {@link Class#isAnnotationPresent(java.lang.Class)}, the
+     * annotations of the superclasses are considered only if the annotation is
+     * marked as inherited.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param packageNames The base packages.
+     * @param annotationType The annotation.
+     * @return The names of the annotated classes, without duplicates.
+     * @throws IOException If the class files can't be read.
+     */
+    synchronized List<String> getClassNamesByAnnotation(
+            final ResourcePatternResolver resourcePatternResolver, final String[] packageNames,
+            final Class<? extends Annotation> annotationType) throws IOException {
+        List<String> newPackages = new ArrayList<String>();
+        for (String packageName : packageNames) {
+            if (!packages.containsKey(packageName) && !newPackages.contains(packageName)) {
+                newPackages.add(packageName);
+            }
+        }
+        if (!newPackages.isEmpty()) {
+            scanPackages(resourcePatternResolver, newPackages);
+        }
+        long start = System.currentTimeMillis();
+        Set<String> result = new LinkedHashSet<String>();
+        for (String packageName : packageNames) {
+            for (ScannedClass scannedClass : packages.get(packageName)) {
+                if (isAnnotated(scannedClass, annotationType)) {
+                    result.add(scannedClass.className);
+                }
+            }
+        }
+        logger.debug("Matched " + result.size() + " classes of " + Arrays.asList(packageNames)
+                + " with @" + annotationType.getSimpleName() + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return new ArrayList<String>(result);
+    }
+
+    /**
+     * Scan some packages, caching the names of their classes and of the
+     * annotations of each class.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param packageNames The packages to scan.
+     * @throws IOException If the class files can't be read.
+     */
+    private void scanPackages(final ResourcePatternResolver resourcePatternResolver,
+            final List<String> packageNames) throws IOException {
+        long[] times = new long[2];
+        List<List<MetadataReader>> packageReaders =
+                readPackages(resourcePatternResolver, packageNames, times);
+        int count = 0;
+        for (int i = 0; i < packageNames.size(); i++) {
+            List<MetadataReader> readers = packageReaders.get(i);
+            List<ScannedClass> scannedClasses = new ArrayList<ScannedClass>(readers.size());
+            for (MetadataReader reader : readers) {
+                scannedClasses.add(getScannedClass(reader));
+            }
+            packages.put(packageNames.get(i), scannedClasses);
+            count += readers.size();
+        }
+        logger.info("Scanned " + count + " classes of " + packageNames + " (resources "
+                + times[0] + " ms, metadata " + times[1] + " ms, threads " + getThreads() + ")");
+    }
+
+    /**
+     * Return the scanned class of the metadata of a class file, caching it.
+     *
+     * @param reader The metadata reader of the class file.
+     * @return The scanned class.
+     */
+    private ScannedClass getScannedClass(final MetadataReader reader) {
+        String className = reader.getClassMetadata().getClassName();
+        ScannedClass result = classes.get(className);
+        if (result == null) {
+            result = new ScannedClass(className, reader.getClassMetadata().getSuperClassName(),
+                    reader.getAnnotationMetadata().getAnnotationTypes());
+            classes.put(className, result);
+        }
+        return result;
+    }
+
+    /**
+     * Check if a scanned class is annotated with a specific annotation, with
+     * the semantics of Spring's {@link org.springframework.core.type.filter.AnnotationTypeFilter}
+     * without meta-annotations: the superclasses are read only for inherited
+     * annotations.
+     *
+     * @param scannedClass The scanned class.
+     * @param annotationType The annotation.
+     * @return true if the class is annotated.
+     */
+    private boolean isAnnotated(final ScannedClass scannedClass,
+            final Class<? extends Annotation> annotationType) {
+        String annotationName = annotationType.getName();
+        if (scannedClass.annotationTypes.contains(annotationName)) {
+            return true;
+        }
+        if (!annotationType.isAnnotationPresent(Inherited.class)) {
+            return false;
+        }
+        String superClassName = scannedClass.superClassName;
+        while (superClassName != null && !Object.class.getName().equals(superClassName)) {
+            if (superClassName.startsWith("java.")) {
+                try {
+                    return ClassUtils.getDefaultClassLoader().loadClass(superClassName).
+                            isAnnotationPresent(annotationType);
+                } catch (ClassNotFoundException e) {
+                    return false;
+                }
+            }
+            ScannedClass superClass = classes.get(superClassName);
+            if (superClass == null) {
+                try {
+                    superClass = getScannedClass(
+                            metadataReaderFactory.getMetadataReader(superClassName));
+                } catch (IOException e) {
+                    logger.debug("Can't read the superclass " + superClassName, e);
+                    return false;
+                }
+            }
+            if (superClass.annotationTypes.contains(annotationName)) {
+                return true;
+            }
+            superClassName = superClass.superClassName;
+        }
+        return false;
+    }
+
+    /**
+     * Read the metadata of the classes of some packages.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param packageNames The packages to read.
+     * @param times Where the milliseconds spent searching the resources and
+     *              reading the metadata are added.
+     * @return The metadata readers of the classes of each package.
+     * @throws IOException If the class files can't be read.
+     */
+    private List<List<MetadataReader>> readPackages(
+            final ResourcePatternResolver resourcePatternResolver,
+            final List<String> packageNames, final long[] times) throws IOException {
+        long start = System.currentTimeMillis();
+        List<Callable<List<Resource[]>>> resourceTasks =
+                new ArrayList<Callable<List<Resource[]>>>();
+        for (final String packageName : packageNames) {
+            resourceTasks.add(new Callable<List<Resource[]>>() {
+                @Override
+                public List<Resource[]> call() throws IOException {
+                    String classPattern =
+                            "classpath*:/" + packageName.replace('.', '/') + "/**/*.class";
+                    return Collections.singletonList(
+                            resourcePatternResolver.getResources(classPattern));
+                }
+            });
+        }
+        List<Resource[]> packageResources = execute(resourceTasks);
+        long resourcesEnd = System.currentTimeMillis();
+        times[0] += resourcesEnd - start;
+        List<Callable<List<MetadataReader>>> readerTasks =
+                new ArrayList<Callable<List<MetadataReader>>>();
+        for (Resource[] resources : packageResources) {
+            for (final List<Resource> chunk : chunks(Arrays.asList(resources))) {
+                readerTasks.add(new Callable<List<MetadataReader>>() {
+                    @Override
+                    public List<MetadataReader> call() throws IOException {
+                        List<MetadataReader> result =
+                                new ArrayList<MetadataReader>(chunk.size());
+                        for (Resource resource : chunk) {
+                            result.add(metadataReaderFactory.getMetadataReader(resource));
+                        }
+                        return result;
+                    }
+                });
+            }
+        }
+        List<MetadataReader> readers = execute(readerTasks);
+        List<List<MetadataReader>> result = new ArrayList<List<MetadataReader>>();
+        int from = 0;
+        for (int i = 0; i < packageNames.size(); i++) {
+            int to = from + packageResources.get(i).length;
+            result.add(readers.subList(from, to));
+            from = to;
+        }
+        times[1] += System.currentTimeMillis() - resourcesEnd;
+        return result;
+    }
+
+    /**
+     * Split a list in chunks of {@link #CHUNK_SIZE} elements.
+     *
+     * @param <T> The type of the elements.
+     * @param list The list to split.
+     * @return The chunks.
+     */
+    private static <T> List<List<T>> chunks(final List<T> list) {
+        List<List<T>> result = new ArrayList<List<T>>();
+        for (int i = 0; i < list.size(); i += CHUNK_SIZE) {
+            result.add(list.subList(i, Math.min(i + CHUNK_SIZE, list.size())));
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of the scanning threads.
+     *
+     * @return The number of the scanning threads, at least 1.
+     */
+    private static int getThreads() {
+        return Math.max(1, Integer.getInteger(THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Execute some tasks, concatenating their results in the order of the tasks.
+     *
+     * The tasks are executed by a pool of at most {@link #getThreads()} threads,
+     * or in the calling thread if there are not many tasks or threads.
+     *
+     * @param <T> The type of the results.
+     * @param tasks The tasks.
+     * @return The results of the tasks.
+     * @throws IOException If a task failed reading the class files.
+     */
+    private static <T> List<T> execute(final List<Callable<List<T>>> tasks)
+            throws IOException {
+        List<T> result = new ArrayList<T>();
+        int threads = Math.min(getThreads(), tasks.size());
+        try {
+            if (threads <= 1) {
+                for (Callable<List<T>> task : tasks) {
+                    result.addAll(task.call());
+                }
+            } else {
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                        0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                        new ScannerThreadFactory());
+                try {
+                    for (Future<List<T>> future : executor.invokeAll(tasks)) {
+                        result.addAll(future.get());
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scanning the classes");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+        return result;
+    }
+
+    /**
+     * Rethrow the failure of a task.
+     *
+     * @param failure The failure.
+     * @return Never returns, it's only for using it in throw statements.
+     * @throws IOException If the failure is an IOException.
+     */
+    private static IOException rethrow(final Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IllegalStateException("Error scanning the classes", failure);
+    }
+
+    /**
+     * The names of a scanned class, of its superclass and of its annotations.
+     */
+    private static class ScannedClass {
+
+        private final String className;
+        private final String superClassName;
+        private final Set<String> annotationTypes;
+
+        /**
+         * The constructor.
+         *
+         * @param className The name of the class.
+         * @param superClassName The name of the superclass, null if there isn't.
+         * @param annotationTypes The names of the annotations of the class.
+         */
+        ScannedClass(final String className, final String superClassName,
+                final Set<String> annotationTypes) {
+            this.className = className;
+            this.superClassName = superClassName;
+            this.annotationTypes = new HashSet<String>(annotationTypes);
+        }
+    }
+
+    /**
+     * The factory of the scanning threads. They are daemon threads, so they
+     * don't block the JVM shutdown.
+     */
+    private static class ScannerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger COUNTER = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread result = new Thread(runnable, "lambico-scanner-" + COUNTER.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        }
+    }
+}
@@ -18,11 +18,17 @@
 
 package org.lambico.spring.xml;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.support.annotation.AnnotationClassFilter;
@@ -40,6 +46,24 @@ import org.springframework.util.StringUtils;
 public final class ContextUtils {
 
     private static Logger logger = LoggerFactory.getLogger(ContextUtils.class);
+    /**
+     * The location of the index of the persistent classes, written at build time
+     * by the annotation processor of the lambico-index module.
+     */
+    public static final String ENTITIES_INDEX = "META-INF/lambico/entities";
+    /**
+     * The location of the index of the DAO interfaces, written at build time
+     * by the annotation processor of the lambico-index module.
+     */
+    public static final String DAOS_INDEX = "META-INF/lambico/daos";
+    /**
+     * The system property for ignoring the indexes, always scanning the packages.
+     */
+    public static final String IGNORE_INDEX_PROPERTY = "lambico.index.ignore";
+    /**
+     * The delimiters of the package names, when a list of base packages is specified.
+     */
+    public static final String PACKAGE_DELIMITERS = ",; \t\n";
 
     /**
      * The constructor.
@@ -86,6 +110,260 @@ public final class ContextUtils {
         return result;
     }
 
+    /**
+     * Return the classes in the package subtree listed in an index.
+     *
+     * All the indexes with the same location in the classpath are read, and only
+     * the listed classes are loaded.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param readerContext The reader context.
+     *                      It can be null, if you don't need to signal failures to the context.
+     * @param indexLocation The location of the index in the classpath.
+     * @param packageName The base package, or a list of base packages separated by
+     *                    {@link #PACKAGE_DELIMITERS}.
+     * @return The list of the indexed classes, null if there is no index in the classpath
+     *         (or if the {@link #IGNORE_INDEX_PROPERTY} system property is true).
+     */
+    public static List<Class> getIndexedClasses(
+            final ResourcePatternResolver resourcePatternResolver,
+            final ReaderContext readerContext, final String indexLocation,
+            final String packageName) {
+        if (Boolean.getBoolean(IGNORE_INDEX_PROPERTY)) {
+            return null;
+        }
+        List<Class> result = new ArrayList<Class>();
+        try {
+            Resource[] indexes =
+                    resourcePatternResolver.getResources("classpath*:" + indexLocation);
+            if (indexes.length == 0) {
+                return null;
+            }
+            String[] packageNames = getPackageNames(packageName);
+            if (packageNames.length > 0) {
+                Set<String> classNames = new TreeSet<String>();
+                for (Resource index : indexes) {
+                    readIndex(index, packageNames, classNames);
+                }
+                for (String className : classNames) {
+                    result.add(ClassUtils.getDefaultClassLoader().loadClass(className));
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error reading the index " + indexLocation, e);
+            fatal(readerContext, e);
+            return null;
+        } catch (ClassNotFoundException e) {
+            logger.error("Error loading the classes of the index " + indexLocation, e);
+            fatal(readerContext, e);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Read the class names of an index.
+     *
+     * @param index The index resource.
+     * @param packageNames The packages of the class names to read.
+     * @param classNames The set where the class names are added.
+     * @throws IOException If the index can't be read.
+     */
+    private static void readIndex(final Resource index, final String[] packageNames,
+            final Set<String> classNames) throws IOException {
+        BufferedReader reader =
+                new BufferedReader(new InputStreamReader(index.getInputStream(), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                for (String packageName : packageNames) {
+                    if (line.startsWith(packageName + ".")) {
+                        classNames.add(line);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Return the classes in the package subtree annotated with a specific annotation.
+     *
+     * A base package is read from the indexes only if every classpath root
+     * containing it has an index, so only the indexed classes are loaded.
+     * Otherwise, as when there is no index, the package subtree is scanned by
+     * {@link #scanClassesByAnnotation(ResourcePatternResolver, ReaderContext, String, Class)},
+     * so the classes of a jar or of a directory compiled without the annotation
+     * processor aren't missed.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param readerContext The reader context.
+     *                      It can be null, if you don't need to signal failures to the context.
+     * @param packageName The base package, or a list of base packages separated by
+     *                    {@link #PACKAGE_DELIMITERS}.
+     * @param annotationType The annotation.
+     * @param indexLocation The location of the index of the classes with the annotation.
+     * @return The list of the annotated classes.
+     */
+    public static List<Class> getClassesByAnnotation(
+            final ResourcePatternResolver resourcePatternResolver,
+            final ReaderContext readerContext, final String packageName,
+            final Class<? extends Annotation> annotationType, final String indexLocation) {
+        List<String> indexedPackages = new ArrayList<String>();
+        List<String> scannedPackages = new ArrayList<String>();
+        try {
+            Set<String> indexedRoots = getIndexedRoots(resourcePatternResolver, indexLocation);
+            for (String name : getPackageNames(packageName)) {
+                if (isIndexed(resourcePatternResolver, name, indexedRoots)) {
+                    indexedPackages.add(name);
+                } else {
+                    scannedPackages.add(name);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error reading the index " + indexLocation, e);
+            fatal(readerContext, e);
+            return null;
+        }
+        // a package can be nested in another one, so a class could be found twice
+        Set<Class> result = new LinkedHashSet<Class>();
+        if (!indexedPackages.isEmpty()) {
+            String names = StringUtils.collectionToCommaDelimitedString(indexedPackages);
+            List<Class> indexedClasses = getIndexedClasses(resourcePatternResolver,
+                    readerContext, indexLocation, names);
+            if (indexedClasses == null) {
+                return null;
+            }
+            logger.debug("Found " + indexedClasses.size() + " classes of the packages " + names
+                    + " in the index " + indexLocation);
+            result.addAll(indexedClasses);
+        }
+        if (!scannedPackages.isEmpty()) {
+            List<Class> scannedClasses = scanClassesByAnnotation(resourcePatternResolver,
+                    readerContext, StringUtils.collectionToCommaDelimitedString(scannedPackages),
+                    annotationType);
+            if (scannedClasses == null) {
+                return null;
+            }
+            result.addAll(scannedClasses);
+        }
+        return new ArrayList<Class>(result);
+    }
+
+    /**
+     * Find the classpath roots containing an index.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param indexLocation The location of the index in the classpath.
+     * @return The URLs of the roots, empty if there is no index (or if the
+     *         {@link #IGNORE_INDEX_PROPERTY} system property is true).
+     * @throws IOException If the indexes can't be found.
+     */
+    private static Set<String> getIndexedRoots(
+            final ResourcePatternResolver resourcePatternResolver, final String indexLocation)
+            throws IOException {
+        Set<String> result = new HashSet<String>();
+        if (!Boolean.getBoolean(IGNORE_INDEX_PROPERTY)) {
+            for (Resource index : resourcePatternResolver.getResources("classpath*:"
+                    + indexLocation)) {
+                String url = index.getURL().toString();
+                if (url.endsWith(indexLocation)) {
+                    result.add(url.substring(0, url.length() - indexLocation.length()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if every classpath root containing a package has an index.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param packageName The package.
+     * @param indexedRoots The URLs of the classpath roots containing an index.
+     * @return true if the package can be read from the indexes.
+     * @throws IOException If the package directories can't be found.
+     */
+    private static boolean isIndexed(final ResourcePatternResolver resourcePatternResolver,
+            final String packageName, final Set<String> indexedRoots) throws IOException {
+        if (indexedRoots.isEmpty()) {
+            return false;
+        }
+        String packagePart = packageName.replace('.', '/') + "/";
+        for (Resource directory : resourcePatternResolver.getResources("classpath*:"
+                + packagePart)) {
+            String url = directory.getURL().toString();
+            if (!url.endsWith(packagePart) || !indexedRoots.contains(
+                    url.substring(0, url.length() - packagePart.length()))) {
+                logger.debug("The package " + packageName + " in " + url + " isn't indexed");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the classes in the package subtree annotated with a specific annotation,
+     * scanning the package.
+     *
+     * The annotations are checked reading the metadata of the class files, so only
+     * the annotated classes are loaded. The class files of a package are read only once
+     * for each resource pattern resolver, and shared by the following scans, also for
+     * other annotations. The packages are scanned in parallel, as described in
+     * {@link ClassScanner}.
+     *
+     * @param resourcePatternResolver The resource pattern resolver.
+     * @param readerContext The reader context.
+     *                      It can be null, if you don't need to signal failures to the context.
+     * @param packageName The base package, or a list of base packages separated by
+     *                    {@link #PACKAGE_DELIMITERS}.
+     * @param annotationType The annotation.
+     * @return The list of the annotated classes.
+     */
+    public static List<Class> scanClassesByAnnotation(
+            final ResourcePatternResolver resourcePatternResolver,
+            final ReaderContext readerContext, final String packageName,
+            final Class<? extends Annotation> annotationType) {
+        List<Class> result = new ArrayList<Class>();
+        String[] packageNames = getPackageNames(packageName);
+        if (packageNames.length > 0) {
+            try {
+                List<String> classNames = ClassScanner.getInstance(resourcePatternResolver).
+                        getClassNamesByAnnotation(resourcePatternResolver, packageNames,
+                        annotationType);
+                for (String className : classNames) {
+                    result.add(ClassUtils.getDefaultClassLoader().loadClass(className));
+                }
+            } catch (IOException e) {
+                logger.error("Error reading classes from the base package " + packageName, e);
+                fatal(readerContext, e);
+                return null;
+            } catch (ClassNotFoundException e) {
+                logger.error("Error loading classes from the base package " + packageName, e);
+                fatal(readerContext, e);
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Split a list of base packages.
+     *
+     * @param packageName The base package, or a list of base packages separated by
+     *                    {@link #PACKAGE_DELIMITERS}. It can be null.
+     * @return The package names.
+     */
+    public static String[] getPackageNames(final String packageName) {
+        if (packageName == null) {
+            return new String[0];
+        }
+        return StringUtils.tokenizeToStringArray(packageName, PACKAGE_DELIMITERS);
+    }
+
     /**
      * Send a fatal message to the context.
      *
@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2009 Lambico Team <lucio.benfante@gmail.com>
+ *
+ * This file is part of Lambico Spring.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.lambico.spring.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import javax.persistence.Entity;
+import junit.framework.TestCase;
+import org.lambico.dao.generic.Dao;
+import org.lambico.spring.xml.test.FakeEntity;
+import org.lambico.spring.xml.test.FakeEntityDao;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.classreading.MetadataReader;
+
+/**
+ * Tests on the methods of the ClassScanner class.
+ *
+ * @version $Revision$
+ */
+public class ClassScannerTest extends TestCase {
+
+    private final ResourcePatternResolver resourcePatternResolver =
+            new PathMatchingResourcePatternResolver();
+
+    public ClassScannerTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of getInstance method, of class ClassScanner.
+     */
+    public void testGetInstance() {
+        ClassScanner scanner = ClassScanner.getInstance(resourcePatternResolver);
+        assertSame(scanner, ClassScanner.getInstance(resourcePatternResolver));
+        assertNotSame(scanner,
+                ClassScanner.getInstance(new PathMatchingResourcePatternResolver()));
+    }
+
+    /**
+     * Test of getMetadataReaders method, of class ClassScanner.
+     */
+    public void testGetMetadataReaders() throws Exception {
+        ClassScanner scanner = ClassScanner.getInstance(resourcePatternResolver);
+        List<MetadataReader> readers =
+                scanner.getMetadataReaders(resourcePatternResolver, "org.lambico.spring.xml.test");
+        assertEquals(2, readers.size());
+        assertNotSame(readers.get(0), scanner.getMetadataReaders(resourcePatternResolver,
+                "org.lambico.spring.xml.test").get(0));
+    }
+
+    /**
+     * Test of getClassNamesByAnnotation method, of class ClassScanner, checking
+     * that the lookups of different annotations in a package share its scan.
+     */
+    public void testGetClassNamesByAnnotationSharingScan() throws Exception {
+        final int[] searches = new int[1];
+        final int[] reads = new int[1];
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver() {
+            @Override
+            public Resource[] getResources(final String locationPattern) throws IOException {
+                searches[0]++;
+                Resource[] result = super.getResources(locationPattern);
+                if (locationPattern.endsWith(".class")) {
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = new CountingResource(result[i], reads);
+                    }
+                }
+                return result;
+            }
+        };
+        ClassScanner scanner = ClassScanner.getInstance(resolver);
+        String[] packageNames = {"org.lambico.spring.xml.test"};
+        assertEquals(Arrays.asList(FakeEntity.class.getName()),
+                scanner.getClassNamesByAnnotation(resolver, packageNames, Entity.class));
+        int scanSearches = searches[0];
+        assertTrue(scanSearches > 0);
+        assertEquals(2, reads[0]);
+        assertEquals(Arrays.asList(FakeEntityDao.class.getName()),
+                scanner.getClassNamesByAnnotation(resolver, packageNames, Dao.class));
+        assertEquals(scanSearches, searches[0]);
+        assertEquals(2, reads[0]);
+    }
+
+    /**
+     * Test of getClassNamesByAnnotation method, of class ClassScanner.
+     */
+    public void testGetClassNamesByAnnotation() throws Exception {
+        ClassScanner scanner = ClassScanner.getInstance(resourcePatternResolver);
+        assertEquals(Arrays.asList(FakeEntityDao.class.getName()),
+                scanner.getClassNamesByAnnotation(resourcePatternResolver,
+                new String[] {"org.lambico.spring.xml.test"}, Dao.class));
+        assertTrue(scanner.getClassNamesByAnnotation(resourcePatternResolver,
+                new String[] {"org.lambico.spring.xml.test"}, Deprecated.class).isEmpty());
+    }
+
+    /**
+     * Test of getClassNamesByAnnotation method, of class ClassScanner, with
+     * overlapping packages.
+     */
+    public void testGetClassNamesByAnnotationWithManyPackages() throws Exception {
+        ClassScanner scanner = ClassScanner.getInstance(resourcePatternResolver);
+        assertEquals(Arrays.asList(FakeEntityDao.class.getName()),
+                scanner.getClassNamesByAnnotation(resourcePatternResolver,
+                new String[] {"org.lambico.spring.xml.test", "org.lambico.spring.xml"},
+                Dao.class));
+    }
+
+    /**
+     * Test of getClassNamesByAnnotation method, of class ClassScanner, checking
+     * that the results of the parallel scan are the same of the serial scan.
+     */
+    public void testParallelScan() throws Exception {
+        String[] packageNames = {"org.springframework.core", "org.springframework.util"};
+        System.setProperty(ClassScanner.THREADS_PROPERTY, "1");
+        List<String> serialResult;
+        List<MetadataReader> serialReaders;
+        try {
+            ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            ClassScanner scanner = ClassScanner.getInstance(resolver);
+            serialResult = scanner.getClassNamesByAnnotation(resolver, packageNames,
+                    Deprecated.class);
+            serialReaders = scanner.getMetadataReaders(resolver, packageNames);
+        } finally {
+            System.clearProperty(ClassScanner.THREADS_PROPERTY);
+        }
+        System.setProperty(ClassScanner.THREADS_PROPERTY, "4");
+        try {
+            ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            ClassScanner scanner = ClassScanner.getInstance(resolver);
+            assertEquals(serialResult, scanner.getClassNamesByAnnotation(resolver,
+                    packageNames, Deprecated.class));
+            List<MetadataReader> readers = scanner.getMetadataReaders(resolver, packageNames);
+            assertTrue(readers.size() > 100);
+            assertEquals(serialReaders.size(), readers.size());
+            for (int i = 0; i < readers.size(); i++) {
+                assertEquals(serialReaders.get(i).getClassMetadata().getClassName(),
+                        readers.get(i).getClassMetadata().getClassName());
+            }
+        } finally {
+            System.clearProperty(ClassScanner.THREADS_PROPERTY);
+        }
+    }
+
+    /**
+     * A resource counting the reads of its content.
+     */
+    private static class CountingResource extends AbstractResource {
+
+        private final Resource resource;
+        private final int[] reads;
+
+        CountingResource(final Resource resource, final int[] reads) {
+            this.resource = resource;
+            this.reads = reads;
+        }
+
+        @Override
+        public String getDescription() {
+            return resource.getDescription();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            reads[0]++;
+            return resource.getInputStream();
+        }
+    }
+}
@@ -18,9 +18,14 @@
 package org.lambico.spring.xml;
 
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.util.Arrays;
 import java.util.List;
 import junit.framework.TestCase;
 import org.lambico.dao.generic.Dao;
+import org.lambico.spring.xml.indexed.IndexedAnnotation;
+import org.lambico.spring.xml.indexed.UnlistedAnnotation;
+import org.lambico.spring.xml.test.FakeEntityDao;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 
@@ -92,4 +97,101 @@ public class ContextUtilsTest extends TestCase {
         List result = ContextUtils.getClassesByAnnotation(classes, annotationType);
         assertEquals(1, result.size());
     }
+
+    /**
+     * Test of getIndexedClasses method, of class ContextUtils.
+     */
+    public void testGetIndexedClasses() {
+        List<Class> result = ContextUtils.getIndexedClasses(resourcePatternResolver, null,
+                ContextUtils.DAOS_INDEX, "org.lambico.spring.xml");
+        assertEquals(1, result.size());
+        assertEquals(FakeEntityDao.class, result.get(0));
+    }
+
+    /**
+     * Test of getIndexedClasses method, of class ContextUtils, without the index.
+     */
+    public void testGetIndexedClassesWithoutIndex() {
+        assertNull(ContextUtils.getIndexedClasses(resourcePatternResolver, null,
+                ContextUtils.ENTITIES_INDEX, "org.lambico.spring.xml.test"));
+    }
+
+    /**
+     * Test of getClassesByAnnotation method, of class ContextUtils, using the index.
+     */
+    public void testGetClassesByAnnotationFromIndex() {
+        List<Class> result = ContextUtils.getClassesByAnnotation(resourcePatternResolver,
+                null, "org.lambico.spring.xml.test", Dao.class, ContextUtils.DAOS_INDEX);
+        assertEquals(1, result.size());
+        assertEquals(FakeEntityDao.class, result.get(0));
+    }
+
+    /**
+     * Test of getClassesByAnnotation method, of class ContextUtils, with a package
+     * in the index and a package without an index in its classpath root.
+     */
+    public void testGetClassesByAnnotationFromIndexAndScan() {
+        List<Class> result = ContextUtils.getClassesByAnnotation(resourcePatternResolver,
+                null, "org.lambico.spring.xml.indexed, org.lambico.dao.generic",
+                Retention.class, "META-INF/lambico/retained");
+        assertTrue(result.contains(IndexedAnnotation.class));
+        // the indexed package is read only from the index
+        assertFalse(result.contains(UnlistedAnnotation.class));
+        // the package of lambico-core is scanned
+        assertTrue(result.contains(Dao.class));
+    }
+
+    /**
+     * Test of getClassesByAnnotation method, of class ContextUtils, ignoring the index.
+     */
+    public void testGetClassesByAnnotationIgnoringTheIndex() {
+        System.setProperty(ContextUtils.IGNORE_INDEX_PROPERTY, "true");
+        try {
+            assertNull(ContextUtils.getIndexedClasses(resourcePatternResolver, null,
+                    ContextUtils.DAOS_INDEX, "org.lambico.spring.xml"));
+            List<Class> result = ContextUtils.getClassesByAnnotation(resourcePatternResolver,
+                    null, "org.lambico.spring.xml.test", Dao.class, ContextUtils.DAOS_INDEX);
+            assertEquals(1, result.size());
+            assertEquals(FakeEntityDao.class, result.get(0));
+        } finally {
+            System.clearProperty(ContextUtils.IGNORE_INDEX_PROPERTY);
+        }
+    }
+
+    /**
+     * Test of scanClassesByAnnotation method, of class ContextUtils.
+     */
+    public void testScanClassesByAnnotation() {
+        List<Class> result = ContextUtils.scanClassesByAnnotation(resourcePatternResolver,
+                null, "org.lambico.spring.xml.test", Dao.class);
+        assertEquals(1, result.size());
+        assertEquals(FakeEntityDao.class, result.get(0));
+        assertTrue(ContextUtils.scanClassesByAnnotation(resourcePatternResolver,
+                null, "", Dao.class).isEmpty());
+    }
+
+    /**
+     * Test of getPackageNames method, of class ContextUtils.
+     */
+    public void testGetPackageNames() {
+        assertEquals(0, ContextUtils.getPackageNames(null).length);
+        assertEquals(0, ContextUtils.getPackageNames("").length);
+        assertTrue(Arrays.equals(new String[] {"org.a", "org.b", "org.c"},
+                ContextUtils.getPackageNames("org.a, org.b;\n org.c")));
+    }
+
+    /**
+     * Test of scanClassesByAnnotation and getIndexedClasses methods, of class
+     * ContextUtils, with a list of packages.
+     */
+    public void testManyPackages() {
+        List<Class> result = ContextUtils.scanClassesByAnnotation(resourcePatternResolver,
+                null, "org.lambico.spring.xml.test, org.lambico.spring.xml", Dao.class);
+        assertEquals(1, result.size());
+        assertEquals(FakeEntityDao.class, result.get(0));
+        result = ContextUtils.getIndexedClasses(resourcePatternResolver, null,
+                ContextUtils.DAOS_INDEX, "org.lambico.other org.lambico.spring.xml.test");
+        assertEquals(1, result.size());
+        assertEquals(FakeEntityDao.class, result.get(0));
+    }
 }
@@ -18,11 +18,14 @@
 
 package org.lambico.spring.xml.test;
 
+import javax.persistence.Entity;
+
 /**
  * An entity.
  *
  * @author Lucio Benfante <lucio.benfante@gmail.com>
  */
+@Entity
 public class FakeEntity {
 
 }